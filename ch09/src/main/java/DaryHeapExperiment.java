@@ -0,0 +1,89 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical comparison of the binary HeapPriorityQueue, with boxed
+ * Long keys, against LongDaryHeapPriorityQueue with arity 2, 4 and 8. Each
+ * trial inserts n random keys, removes them all, and then runs a "hold" phase
+ * modeling a timer queue of n pending deadlines, in which each step removes
+ * the earliest deadline and schedules a new one a random delay after it.
+ * Throughput is reported in millions of operations per second.
+ *
+ * The first command line argument can be used to change the number of keys,
+ * and the second the number of hold steps.
+ */
+public class DaryHeapExperiment {
+
+    /** Reports the throughput of the three phases for the given queue. */
+    private static void trial(String name, PriorityQueue<Long, Integer> pq, long[] keys, long[] delays) {
+        long startTime = System.nanoTime();
+        for (int j = 0; j < keys.length; j++)
+            pq.insert(keys[j], j);
+        long insertTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        while (!pq.isEmpty())
+            pq.removeMin();
+        long removeTime = System.nanoTime() - startTime;
+        for (int j = 0; j < keys.length; j++)
+            pq.insert(keys[j], j);
+        startTime = System.nanoTime();
+        for (int j = 0; j < delays.length; j++) {
+            Entry<Long, Integer> e = pq.removeMin();
+            pq.insert(e.getKey() + delays[j], j);
+        }
+        long holdTime = System.nanoTime() - startTime;
+        report(name, keys.length, insertTime, removeTime, delays.length, holdTime);
+    }
+
+    /** As trial, but using the primitive methods of a d-ary heap. */
+    private static void primitiveTrial(LongDaryHeapPriorityQueue<Integer> pq, long[] keys, long[] delays) {
+        long startTime = System.nanoTime();
+        for (int j = 0; j < keys.length; j++)
+            pq.push(keys[j], j);
+        long insertTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        while (!pq.isEmpty())
+            pq.removeMinValue();
+        long removeTime = System.nanoTime() - startTime;
+        for (int j = 0; j < keys.length; j++)
+            pq.push(keys[j], j);
+        startTime = System.nanoTime();
+        for (int j = 0; j < delays.length; j++) {
+            long deadline = pq.minKey();
+            Integer value = pq.removeMinValue();
+            pq.push(deadline + delays[j], value);
+        }
+        long holdTime = System.nanoTime() - startTime;
+        report(pq.arity() + "-ary primitive heap", keys.length, insertTime, removeTime, delays.length, holdTime);
+    }
+
+    private static void report(String name, int n, long insertTime, long removeTime, int holds, long holdTime) {
+        System.out.println(String.format("n: %8d  %-24s insert: %7.2f  removeMin: %7.2f  hold: %7.2f Mops/s",
+                n, name, 1000.0 * n / insertTime, 1000.0 * n / removeTime, 1000.0 * holds / holdTime));
+    }
+
+    public static void main(String[] args) {
+        int n = 1000000;
+        int holds = 2000000;
+        try {
+            if (args.length > 0)
+                n = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                holds = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+        Random rand = new Random(42);
+        long[] keys = new long[n];
+        for (int j = 0; j < n; j++)
+            keys[j] = rand.nextInt(Integer.MAX_VALUE);
+        long[] delays = new long[holds];
+        for (int j = 0; j < holds; j++)
+            delays[j] = 1 + rand.nextInt(1 << 20);
+
+        for (int round = 0; round < 2; round++) {         // the first round warms up the JIT
+            System.out.println(round == 0 ? "warm-up:" : "measured:");
+            trial("HeapPriorityQueue", new HeapPriorityQueue<>(), keys, delays);
+            for (int d = 2; d <= 8; d *= 2)
+                primitiveTrial(new LongDaryHeapPriorityQueue<>(d), keys, delays);
+            trial("4-ary heap, boxed calls", new LongDaryHeapPriorityQueue<>(), keys, delays);
+        }
+    }
+}
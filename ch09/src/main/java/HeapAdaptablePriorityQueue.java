@@ -28,8 +28,29 @@ public class HeapAdaptablePriorityQueue<K, V> extends HeapPriorityQueue<K, V> im
         super(comp);
     }
 
+    /**
+     * Returns an adaptable priority queue ordered by comp holding the given
+     * entries, built bottom-up in O(n) time. The entries' locators come from addAll.
+     *
+     * @throws IllegalArgumentException if the arrays differ in length or a key is invalid
+     */
+    public static <K, V> HeapAdaptablePriorityQueue<K, V> fromArrays(K[] keys, V[] values, Comparator<K> comp)
+            throws IllegalArgumentException {
+        HeapAdaptablePriorityQueue<K, V> pq = new HeapAdaptablePriorityQueue<>(comp);
+        pq.addAll(keys, values);
+        return pq;
+    }
+
     // protected utilities
 
+    /**
+     * Returns a new location-aware entry, recording that it is placed at index j.
+     */
+    @Override
+    protected Entry<K, V> newEntry(K key, V value, int j) {
+        return new AdaptablePQEntry<>(key, value, j);
+    }
+
     /**
      * Validates an entry to ensure it is location-aware.
      */
@@ -1,7 +1,13 @@
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class HeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
+    private static final int PARALLEL_THRESHOLD = 1 << 17;  // heaps at least this large heapify in parallel
+    private static final int SEQUENTIAL_HEIGHT = 14;        // subtrees lower than this are heapified by one task
+
     protected ArrayList<Entry<K, V>> heap = new ArrayList<>();
 
     public HeapPriorityQueue() {
@@ -12,20 +18,107 @@ public class HeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
         super(comp);
     }
 
+    /**
+     * Creates a priority queue holding the given entries (as many as the
+     * shorter array allows), built bottom-up in O(n) time.
+     */
     public HeapPriorityQueue(K[] keys, V[] values) {
         super();
-        for (int j = 0; j < Math.min(keys.length, values.length); j++) {
-            heap.add(new PQEntry<>(keys[j], values[j]));
-            heapify();
+        append(keys, values, Math.min(keys.length, values.length));
+        heapify();
+    }
+
+    /**
+     * Returns a priority queue ordered by comp holding the given entries, built
+     * bottom-up in O(n) time.
+     *
+     * @throws IllegalArgumentException if the arrays differ in length or a key is invalid
+     */
+    public static <K, V> HeapPriorityQueue<K, V> fromArrays(K[] keys, V[] values, Comparator<K> comp)
+            throws IllegalArgumentException {
+        HeapPriorityQueue<K, V> pq = new HeapPriorityQueue<>(comp);
+        pq.addAll(keys, values);
+        return pq;
+    }
+
+    /**
+     * Returns a new entry with the given key and value, to be placed at index j.
+     */
+    protected Entry<K, V> newEntry(K key, V value, int j) {
+        return new PQEntry<>(key, value);
+    }
+
+    /** Appends entries for the first count keys and values, without restoring the heap property. */
+    private List<Entry<K, V>> append(K[] keys, V[] values, int count) {
+        for (int j = 0; j < count; j++)
+            checkKey(keys[j]);
+        List<Entry<K, V>> added = new ArrayList<>(count);
+        heap.ensureCapacity(heap.size() + count);
+        for (int j = 0; j < count; j++) {
+            Entry<K, V> e = newEntry(keys[j], values[j], heap.size());
+            heap.add(e);
+            added.add(e);
         }
+        return added;
     }
 
-    private void heapify() {
+    /**
+     * Restores the heap property for the whole array list, bottom-up, in O(n)
+     * time. Large heaps are split into disjoint subtrees heapified in parallel.
+     */
+    protected void heapify() {
+        if (heap.size() >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new HeapifyTask(0));
+            return;
+        }
         int startIndex = parent(size() - 1);  // start at PARENT of last entry
         for (int j = startIndex; j >= 0; j--)
             downHeap(j);
     }
 
+    /**
+     * Heapifies the subtree rooted at index j: its two subtrees first, in
+     * parallel, then j itself. As downHeap(j) moves entries only within the
+     * subtree of j, tasks for disjoint subtrees never touch the same index.
+     */
+    @SuppressWarnings({"serial"})
+    private class HeapifyTask extends RecursiveAction {
+        private final int j;
+
+        HeapifyTask(int j) {
+            this.j = j;
+        }
+
+        @Override
+        protected void compute() {
+            int n = heap.size();
+            int height = log2(n) - log2(j + 1);  // levels below j
+            if (height < SEQUENTIAL_HEIGHT) {
+                heapifySubtree(j);
+                return;
+            }
+            invokeAll(new HeapifyTask(left(j)), new HeapifyTask(right(j)));
+            downHeap(j);
+        }
+    }
+
+    private static int log2(int n) {
+        return 31 - Integer.numberOfLeadingZeros(n);
+    }
+
+    /** Heapifies the subtree rooted at index r, one level at a time from the bottom. */
+    private void heapifySubtree(int r) {
+        int n = heap.size();
+        int first = r, width = 1;               // indices of r's descendants at one level
+        while (left(first) < n) {               // find the lowest level with internal nodes
+            first = left(first);
+            width *= 2;
+        }
+        for (; width > 0; first = parent(first), width /= 2)
+            for (int j = Math.min(first + width, n) - 1; j >= first; j--)
+                downHeap(j);
+    }
+
     // protected utilities
     protected int parent(int j) {
         return (j - 1) / 2;  // truncating division
@@ -102,6 +195,27 @@ public class HeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
         return newest;
     }
 
+    /**
+     * Inserts an entry for each key and its corresponding value, returning the
+     * new entries in the order given. A large batch is appended and heapified
+     * in O(n) time; a small one is inserted one entry at a time.
+     *
+     * @throws IllegalArgumentException if the arrays differ in length or a key is invalid
+     */
+    public List<Entry<K, V>> addAll(K[] keys, V[] values) throws IllegalArgumentException {
+        if (keys.length != values.length)
+            throw new IllegalArgumentException("Keys and values differ in length");
+        int oldSize = heap.size();
+        List<Entry<K, V>> added = append(keys, values, keys.length);
+        int n = heap.size();
+        if ((long) keys.length * log2(Math.max(n, 2)) >= n)   // cheaper than upheap for each
+            heapify();
+        else
+            for (int j = oldSize; j < n; j++)
+                upheap(j);
+        return added;
+    }
+
     @Override
     public Entry<K, V> min() {
         if (heap.isEmpty()) return null;
@@ -0,0 +1,185 @@
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue with long keys, implemented as a d-ary heap kept in a
+ * primitive key array and a parallel value array.
+ *
+ * Each node has up to d children (4 by default), stored contiguously, so the
+ * heap is about log_d n levels deep and a downheap scans each group of
+ * siblings as one run of the key array. Keys are compared as primitives, with
+ * no entry, boxed key or Comparator call per comparison, and entries move into
+ * a "hole" rather than being swapped. Keys are ordered by their natural order.
+ *
+ * The primitive methods (push, minKey, minValue, removeMinValue) do not create
+ * entries; the boxed PriorityQueue methods are also supported, with entries
+ * created on demand. The primitive insertion is named push, rather than
+ * overloading insert, so that a call such as insert(5, 7) is not ambiguous.
+ */
+public class LongDaryHeapPriorityQueue<V> extends AbstractPriorityQueue<Long, V> {
+    private static final int DEFAULT_ARITY = 4;
+
+    private final int d;                      // number of children per node
+    private long[] keys = new long[16];       // keys[0..n-1] in heap order
+    private Object[] vals = new Object[16];   // vals[j] is the value for keys[j]
+    private int n = 0;                        // number of entries
+
+    /**
+     * Constructs an empty 4-ary heap.
+     */
+    public LongDaryHeapPriorityQueue() {
+        this(DEFAULT_ARITY);
+    }
+
+    /**
+     * Constructs an empty heap in which each node has up to the given number of children.
+     *
+     * @throws IllegalArgumentException if arity is less than 2
+     */
+    public LongDaryHeapPriorityQueue(int arity) throws IllegalArgumentException {
+        super();
+        if (arity < 2) throw new IllegalArgumentException("Arity must be at least 2");
+        d = arity;
+    }
+
+    // private utilities
+    @SuppressWarnings({"unchecked"})
+    private V valueAt(int j) {
+        return (V) vals[j];                    // safe cast
+    }
+
+    /** Ensures capacity for at least the given number of entries. */
+    private void ensureCapacity(int cap) {
+        if (cap > keys.length) {
+            int newCap = Math.max(cap, 2 * keys.length);
+            long[] newKeys = new long[newCap];
+            Object[] newVals = new Object[newCap];
+            System.arraycopy(keys, 0, newKeys, 0, n);
+            System.arraycopy(vals, 0, newVals, 0, n);
+            keys = newKeys;
+            vals = newVals;
+        }
+    }
+
+    /** Places the given entry at hole j or above, moving larger ancestors down. */
+    private void upheap(int j, long key, Object value) {
+        while (j > 0) {
+            int p = (j - 1) / d;
+            if (keys[p] <= key) break;         // heap property verified
+            keys[j] = keys[p];                 // move the parent into the hole
+            vals[j] = vals[p];
+            j = p;
+        }
+        keys[j] = key;
+        vals[j] = value;
+    }
+
+    /** Places the given entry at hole j or below, moving smallest children up. */
+    private void downHeap(int j, long key, Object value) {
+        while (true) {
+            int first = d * j + 1;             // children of j are first..first+d-1
+            if (first >= n) break;
+            int last = Math.min(first + d, n);
+            int small = first;
+            long smallKey = keys[first];
+            for (int c = first + 1; c < last; c++)
+                if (keys[c] < smallKey) {
+                    small = c;
+                    smallKey = keys[c];
+                }
+            if (smallKey >= key) break;        // heap property has been restored
+            keys[j] = smallKey;                // move the smallest child into the hole
+            vals[j] = vals[small];
+            j = small;
+        }
+        keys[j] = key;
+        vals[j] = value;
+    }
+
+    // public methods
+
+    /**
+     * Returns the number of entries in the priority queue.
+     */
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the number of children each node may have.
+     */
+    public int arity() {
+        return d;
+    }
+
+    /**
+     * Inserts an entry with the given key and value.
+     */
+    public void push(long key, V value) {
+        ensureCapacity(n + 1);
+        upheap(n++, key, value);
+    }
+
+    /**
+     * Returns (but does not remove) a minimal key.
+     *
+     * @throws NoSuchElementException if the priority queue is empty
+     */
+    public long minKey() {
+        if (n == 0) throw new NoSuchElementException("Priority queue is empty");
+        return keys[0];
+    }
+
+    /**
+     * Returns (but does not remove) the value of an entry with minimal key.
+     *
+     * @throws NoSuchElementException if the priority queue is empty
+     */
+    public V minValue() {
+        if (n == 0) throw new NoSuchElementException("Priority queue is empty");
+        return valueAt(0);
+    }
+
+    /**
+     * Removes an entry with minimal key and returns its value.
+     *
+     * @throws NoSuchElementException if the priority queue is empty
+     */
+    public V removeMinValue() {
+        if (n == 0) throw new NoSuchElementException("Priority queue is empty");
+        V answer = valueAt(0);
+        n--;
+        long key = keys[n];                    // the last entry fills the hole at the root
+        Object value = vals[n];
+        vals[n] = null;                        // help garbage collection
+        if (n > 0) downHeap(0, key, value);
+        return answer;
+    }
+
+    // boxed versions of the PriorityQueue methods
+
+    /**
+     * Inserts a key-value pair and returns the entry created.
+     *
+     * @throws IllegalArgumentException if the key is null
+     */
+    @Override
+    public Entry<Long, V> insert(Long key, V value) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Null keys are not supported");
+        push(key.longValue(), value);
+        return new PQEntry<>(key, value);
+    }
+
+    @Override
+    public Entry<Long, V> min() {
+        if (n == 0) return null;
+        return new PQEntry<>(keys[0], valueAt(0));
+    }
+
+    @Override
+    public Entry<Long, V> removeMin() {
+        if (n == 0) return null;
+        long key = keys[0];
+        return new PQEntry<>(key, removeMinValue());
+    }
+}
@@ -2,10 +2,16 @@ import java.util.ArrayList;
 import java.util.Random;
 
 public abstract class AbstractHashMap<K, V> extends AbstractMap<K, V> {
+    private static final int REHASH_STEPS = 4;  // buckets migrated per operation during incremental rehash
+
     protected int n = 0;  // number of entries in the dictionary
     protected int capacity;  // length of the table
     private int prime;  // prime factor
     private long scale, shift;  // the shift and scaling factors
+    private boolean masked = false;  // whether capacity is a power of two indexed by bit mask
+    private boolean incremental = false;  // whether resizing is spread over later operations
+    private AbstractHashMap<K, V> next = null;  // table being filled during an incremental rehash
+    private int rehashIndex = 0;  // next bucket of this table to migrate into next
 
     public AbstractHashMap(int cap, int p) {
         prime = p;
@@ -24,32 +30,117 @@ public abstract class AbstractHashMap<K, V> extends AbstractMap<K, V> {
         this(17);  // default capacity
     }
 
+    /**
+     * Selects between the default MAD (multiply-add-divide) compression, which
+     * uses two modulo operations per access, and power-of-two tables indexed by
+     * masking a seeded murmur3 finalizer of the hash code. Switching rebuilds the
+     * table; the capacity is rounded up to a power of two when masking.
+     */
+    public void setMaskedHashing(boolean value) {
+        if (value == masked) return;
+        finishRehash();
+        masked = value;
+        int cap = capacity;
+        if (masked)
+            cap = Integer.highestOneBit(Math.max(cap - 1, 1)) << 1;  // least power of two >= capacity
+        rebuild(cap);
+    }
+
+    /**
+     * Selects whether a resize rebuilds the table at once (the default), or keeps
+     * the old and new tables side by side and migrates a few buckets on each
+     * subsequent get, put or remove, so no single operation takes time proportional to n.
+     */
+    public void setIncrementalResize(boolean value) {
+        if (!value) finishRehash();
+        incremental = value;
+    }
+
     // public methods
     public int size() {
-        return n;
+        return n + (next == null ? 0 : next.n);
     }
 
     public V get(K key) {
-        return bucketGet(hashValue(key), key);
+        if (next == null)
+            return bucketGet(hashValue(key), key);
+        rehashStep();
+        if (next == null)
+            return bucketGet(hashValue(key), key);
+        V answer = next.bucketGet(next.hashValue(key), key);
+        if (answer == null)
+            answer = bucketGet(hashValue(key), key);  // may not have been migrated yet
+        return answer;
     }
 
     public V remove(K key) {
-        return bucketRemove(hashValue(key), key);
+        int oldSize = size();
+        V answer;
+        if (next != null)
+            rehashStep();
+        if (next == null)
+            answer = bucketRemove(hashValue(key), key);
+        else {                                         // key may be in either table
+            answer = next.bucketRemove(next.hashValue(key), key);
+            V old = bucketRemove(hashValue(key), key);
+            if (answer == null) answer = old;
+        }
+        if (size() != oldSize) modCount++;
+        return answer;
     }
 
     public V put(K key, V value) {
-        V answer = bucketPut(hashValue(key), key, value);
-        if (n > capacity / 2)
-            resize(2 * capacity - 1);
+        int oldSize = size();
+        V answer;
+        if (next != null)
+            rehashStep();
+        if (next == null)
+            answer = bucketPut(hashValue(key), key, value);
+        else {                                         // new entries go to the new table
+            V old = bucketRemove(hashValue(key), key);
+            answer = next.bucketPut(next.hashValue(key), key, value);
+            if (answer == null) answer = old;
+        }
+        if (size() != oldSize) modCount++;
+        int cap = (next == null ? capacity : next.capacity);
+        if (size() > cap / 2)
+            resize(masked ? 2 * cap : 2 * cap - 1);  // keep capacity a power of two (or odd)
         return answer;
     }
 
-    // private utilities
-    private int hashValue(K key) {
+    // utilities
+
+    /** Returns the seeded hash value of key, in the range [0, capacity). */
+    protected int hashValue(K key) {
+        if (masked)
+            return mix(key.hashCode() ^ (int) scale) & (capacity - 1);
         return (int) ((Math.abs(key.hashCode() * scale + shift) % prime) % capacity);
     }
 
+    /** Finalization mix of murmur3, spreading every input bit over the low bits used by the mask. */
+    protected static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
     private void resize(int newCap) {
+        modCount++;
+        if (incremental) {
+            finishRehash();               // only in the unlikely case the last one is still running
+            next = createMap(newCap, prime);
+            next.masked = masked;
+            rehashIndex = 0;
+        } else
+            rebuild(newCap);
+    }
+
+    /** Reinserts every entry into a freshly created table of the given capacity. */
+    private void rebuild(int newCap) {
+        modCount++;
         ArrayList<Entry<K, V>> buffer = new ArrayList<>(n);
         for (Entry<K, V> e : entrySet())
             buffer.add(e);
@@ -60,6 +151,59 @@ public abstract class AbstractHashMap<K, V> extends AbstractMap<K, V> {
             put(e.getKey(), e.getValue());
     }
 
+    /**
+     * Migrates up to REHASH_STEPS nonempty buckets (visiting at most ten times as
+     * many empty ones) from this table into the new one, adopting the new table
+     * once every bucket has been moved.
+     */
+    private void rehashStep() {
+        int emptyVisits = 10 * REHASH_STEPS;
+        int moved = 0;
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        while (next != null && moved < REHASH_STEPS && emptyVisits > 0) {
+            if (rehashIndex == capacity) {
+                adopt(next);
+                break;
+            }
+            buffer.clear();
+            for (Entry<K, V> e : bucketEntries(rehashIndex))
+                buffer.add(e);
+            if (buffer.isEmpty()) {
+                rehashIndex++;
+                emptyVisits--;
+            } else {                          // bucket is revisited until it is empty
+                modCount++;
+                for (Entry<K, V> e : buffer) {
+                    K k = e.getKey();
+                    V v = e.getValue();
+                    bucketRemove(hashValue(k), k);
+                    next.bucketPut(next.hashValue(k), k, v);
+                }
+                moved++;
+            }
+        }
+    }
+
+    /**
+     * Completes any incremental rehash in progress.
+     */
+    protected void finishRehash() {
+        while (next != null)
+            rehashStep();
+    }
+
+    /** Takes over the table, hash parameters and size of the fully populated map m. */
+    private void adopt(AbstractHashMap<K, V> m) {
+        capacity = m.capacity;
+        prime = m.prime;
+        scale = m.scale;
+        shift = m.shift;
+        masked = m.masked;
+        n = m.n;
+        adoptTable(m);
+        next = null;
+    }
+
     // protected abstract methods to be implemented by subclasses
     protected abstract void createTable();
 
@@ -68,4 +212,13 @@ public abstract class AbstractHashMap<K, V> extends AbstractMap<K, V> {
     protected abstract V bucketPut(int h, K k, V v);
 
     protected abstract V bucketRemove(int h, K k);
+
+    /** Returns the entries currently stored in bucket h (those whose slot is h, for probing). */
+    protected abstract Iterable<Entry<K, V>> bucketEntries(int h);
+
+    /** Returns an empty map of the same kind with the given capacity and prime factor. */
+    protected abstract AbstractHashMap<K, V> createMap(int cap, int p);
+
+    /** Replaces this map's table with that of m, a map created by createMap. */
+    protected abstract void adoptTable(AbstractHashMap<K, V> m);
 }
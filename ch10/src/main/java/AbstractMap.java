@@ -1,6 +1,13 @@
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.function.BiConsumer;
 
 public abstract class AbstractMap<K, V> implements Map<K, V> {
+    /**
+     * Number of structural modifications (insertions, removals, resizes) made so
+     * far; live iterators use this to fail fast if the map changes underneath them.
+     */
+    protected int modCount = 0;
 
     @Override
     public boolean isEmpty() {
@@ -111,5 +118,24 @@ public abstract class AbstractMap<K, V> implements Map<K, V> {
         return new ValueIterable();
     }
 
+    /**
+     * Performs the given action on each key and value of the map. Subclasses
+     * may override this to walk their storage directly.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Entry<K, V> e : entrySet())
+            action.accept(e.getKey(), e.getValue());
+    }
 
+    /**
+     * Returns an independent copy of the map's entries, which may be iterated
+     * while the map is being modified.
+     */
+    public Iterable<Entry<K, V>> entrySnapshot() {
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>(size());
+        for (Entry<K, V> e : entrySet())
+            buffer.add(e);
+        return buffer;
+    }
 }
@@ -59,6 +59,11 @@ public abstract class AbstractSortedMap<K,V>
     this(new DefaultComparator<K>());    // default comparator uses natural ordering
   }
 
+  /** Returns the comparator defining the ordering of keys in the map. */
+  protected Comparator<K> comparator() {
+    return comp;
+  }
+
   /** Method for comparing two entries according to key */
   protected int compare(Entry<K,V> a, Entry<K,V> b) {
     return comp.compare(a.getKey(), b.getKey());
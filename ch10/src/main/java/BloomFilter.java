@@ -0,0 +1,127 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A Bloom filter: a compact set summary that answers "definitely absent" or
+ * "possibly present". Adding a key sets k bits of a bit array; a key whose bits
+ * are not all set was certainly never added. The filter is sized from the
+ * expected number of keys and the desired false-positive probability.
+ *
+ * In the blocked layout all k bits of a key fall within a single 512-bit block
+ * (one 64-byte cache line), so a query touches one line of memory rather than k.
+ * Crowding the bits into blocks raises the false-positive rate a little for the
+ * same number of bits.
+ *
+ * As with AbstractHashMap, hash codes are combined with a random seed, so
+ * different filters do not share the same troublesome keys.
+ */
+public class BloomFilter<K> {
+    private static final int BLOCK_WORDS = 8;    // 64-bit words per 512-bit block
+
+    private long[] bits;                         // the bit array
+    private int numBits;                         // m, the number of bits
+    private int numHashes;                       // k, the bits set per key
+    private boolean blocked;                     // whether each key's bits share one block
+    private long seed;                           // random seed for hashing
+
+    /**
+     * Creates a filter for the given number of keys and false-positive probability.
+     *
+     * @throws IllegalArgumentException if fpp is not strictly between 0 and 1
+     */
+    public BloomFilter(int expectedKeys, double fpp) throws IllegalArgumentException {
+        this(expectedKeys, fpp, false);
+    }
+
+    /**
+     * Creates a filter, with cache-line blocks if desired, for the given number
+     * of keys and false-positive probability.
+     *
+     * @throws IllegalArgumentException if fpp is not strictly between 0 and 1
+     */
+    public BloomFilter(int expectedKeys, double fpp, boolean blocked) throws IllegalArgumentException {
+        if (!(fpp > 0 && fpp < 1)) throw new IllegalArgumentException("False-positive rate must be in (0, 1)");
+        int n = Math.max(1, expectedKeys);
+        double m = -n * Math.log(fpp) / (Math.log(2) * Math.log(2));  // optimal number of bits
+        int words = (int) Math.min(Integer.MAX_VALUE / 64, Math.ceil(m / 64));
+        if (blocked)
+            words = BLOCK_WORDS * ((words + BLOCK_WORDS - 1) / BLOCK_WORDS);  // whole blocks
+        bits = new long[Math.max(words, blocked ? BLOCK_WORDS : 1)];
+        numBits = 64 * bits.length;
+        numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+        this.blocked = blocked;
+        seed = new Random().nextLong();
+    }
+
+    /** Finalization mix of murmur3 (64-bit), spreading every input bit over the output. */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the index of the ith bit for a key with the given 64-bit hash. The
+     * bits are derived from two 32-bit halves as h1 + i*h2 (Kirsch and Mitzenmacher).
+     */
+    private int bitIndex(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;        // odd, so the probe sequence does not stall
+        if (!blocked)
+            return Math.floorMod(h1 + i * h2, numBits);
+        int block = Math.floorMod(h1, numBits / 512);
+        int g = (h2 + i * (h1 | 1)) * 0x9e3779b9;      // scatter, then let the top 9 bits
+        return 512 * block + (g >>> 23);               // pick a bit within the block
+    }
+
+    private long hash(K key) {
+        return mix(key.hashCode() ^ seed);
+    }
+
+    /**
+     * Records the given key in the filter.
+     */
+    public void add(K key) {
+        long h = hash(key);
+        for (int i = 0; i < numHashes; i++) {
+            int b = bitIndex(h, i);
+            bits[b >>> 6] |= 1L << b;
+        }
+    }
+
+    /**
+     * Returns false if the key was definitely never added, and true if it may have been.
+     */
+    public boolean mightContain(K key) {
+        long h = hash(key);
+        for (int i = 0; i < numHashes; i++) {
+            int b = bitIndex(h, i);
+            if ((bits[b >>> 6] & (1L << b)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes every key from the filter.
+     */
+    public void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+    /**
+     * Returns the number of bits in the filter.
+     */
+    public int bitCount() {
+        return numBits;
+    }
+
+    /**
+     * Returns the number of bits set for each key.
+     */
+    public int hashCount() {
+        return numHashes;
+    }
+}
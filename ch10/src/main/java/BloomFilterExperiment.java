@@ -0,0 +1,82 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical test of Bloom filter front-ends for lookup workloads
+ * dominated by misses. A ProbeHashMap and a SortedTableMap are each queried
+ * directly, through a classic BloomFilterMap, and through a blocked one, with
+ * 90% of the queried keys absent. Present keys are even and absent keys odd,
+ * so misses are spread throughout the key range. The observed false-positive rate of each
+ * filter is reported alongside the time per lookup.
+ *
+ * The first command line argument sets the number of keys, the second the
+ * number of lookups, and the third the false-positive rate of the filters.
+ */
+public class BloomFilterExperiment {
+
+    /** Returns elapsed nanoseconds per lookup of every query key in m. */
+    private static double lookups(Map<Integer, Integer> m, int[] queries) {
+        long sink = 0;
+        long startTime = System.nanoTime();
+        for (int q : queries)
+            if (m.get(q) != null) sink++;
+        long elapsed = System.nanoTime() - startTime;
+        if (sink == -1) System.out.println();   // keep the lookups from being optimized away
+        return (double) elapsed / queries.length;
+    }
+
+    /** Returns the fraction of absent query keys that the filter fails to rule out. */
+    private static double falsePositiveRate(BloomFilter<Integer> filter, int[] queries) {
+        int misses = 0, falsePositives = 0;
+        for (int q : queries)
+            if (q % 2 != 0) {                    // only even keys are present
+                misses++;
+                if (filter.mightContain(q)) falsePositives++;
+            }
+        return (double) falsePositives / misses;
+    }
+
+    /** Runs each variant of the experiment on maps produced by the given supplier. */
+    private static void trial(String name, java.util.function.Supplier<Map<Integer, Integer>> maker,
+                              int n, int[] queries, double fpp) {
+        Map<Integer, Integer> plain = maker.get();
+        for (int k = 0; k < n; k++)
+            plain.put(2 * k, k);
+        BloomFilterMap<Integer, Integer> classic = new BloomFilterMap<>(plain, fpp, false);
+        BloomFilterMap<Integer, Integer> blocked = new BloomFilterMap<>(plain, fpp, true);
+        for (int warmup = 0; warmup < 3; warmup++) {
+            lookups(plain, queries);
+            lookups(classic, queries);
+            lookups(blocked, queries);
+        }
+        BloomFilter<Integer> f1 = new BloomFilter<>(2 * n, fpp, false);
+        BloomFilter<Integer> f2 = new BloomFilter<>(2 * n, fpp, true);
+        for (int k = 0; k < n; k++) {
+            f1.add(2 * k);
+            f2.add(2 * k);
+        }
+        System.out.println(String.format("%-14s plain: %7.1f ns  classic: %7.1f ns (fp %.4f)  blocked: %7.1f ns (fp %.4f)",
+                name, lookups(plain, queries), lookups(classic, queries), falsePositiveRate(f1, queries),
+                lookups(blocked, queries), falsePositiveRate(f2, queries)));
+    }
+
+    public static void main(String[] args) {
+        int n = 1000000;
+        int q = 2000000;
+        double fpp = 0.01;
+        try {
+            if (args.length > 0)
+                n = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                q = Integer.parseInt(args[1]);
+            if (args.length > 2)
+                fpp = Double.parseDouble(args[2]);
+        } catch (NumberFormatException e) { }
+
+        Random rand = new Random(12345);
+        int[] queries = new int[q];
+        for (int j = 0; j < q; j++)               // 10% hits, 90% misses interleaved among them
+            queries[j] = 2 * rand.nextInt(n) + (rand.nextInt(10) == 0 ? 0 : 1);
+        trial("ProbeHashMap", ProbeHashMap::new, n, queries, fpp);
+        trial("SortedTableMap", SortedTableMap::new, n, queries, fpp);
+    }
+}
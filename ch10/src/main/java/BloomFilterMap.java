@@ -0,0 +1,114 @@
+import java.util.function.BiConsumer;
+
+/**
+ * A map that wraps any other map with a Bloom filter over its keys, so that
+ * lookups of absent keys are usually answered without consulting the map.
+ *
+ * A Bloom filter cannot forget a key, so removals leave stale bits behind,
+ * and insertions beyond the expected number of keys raise the false-positive
+ * rate. Once the number of insertions since the filter was built exceeds its
+ * expected number of keys, the filter is rebuilt from the current entries,
+ * sized for twice as many.
+ */
+public class BloomFilterMap<K, V> extends AbstractMap<K, V> {
+    private static final int DEFAULT_EXPECTED = 1024;
+    private static final double DEFAULT_FPP = 0.01;
+
+    private Map<K, V> map;                       // the wrapped map
+    private BloomFilter<K> filter;
+    private double fpp;                          // desired false-positive probability
+    private boolean blocked;                     // whether to use a cache-line blocked filter
+    private int expected;                        // keys the current filter was sized for
+    private int added = 0;                       // keys added since the filter was built
+
+    /**
+     * Wraps the given map with a filter having a 1% false-positive rate.
+     */
+    public BloomFilterMap(Map<K, V> map) {
+        this(map, DEFAULT_FPP, false);
+    }
+
+    /**
+     * Wraps the given map with a filter having the given false-positive rate,
+     * using cache-line blocks if desired.
+     *
+     * @throws IllegalArgumentException if fpp is not strictly between 0 and 1
+     */
+    public BloomFilterMap(Map<K, V> map, double fpp, boolean blocked) throws IllegalArgumentException {
+        this.map = map;
+        this.fpp = fpp;
+        this.blocked = blocked;
+        rebuild(Math.max(DEFAULT_EXPECTED, 2 * map.size()));
+    }
+
+    /** Replaces the filter with one sized for the given number of keys, holding the current keys. */
+    private void rebuild(int expectedKeys) {
+        filter = new BloomFilter<>(expectedKeys, fpp, blocked);
+        expected = expectedKeys;
+        added = 0;
+        for (K key : map.keySet()) {
+            filter.add(key);
+            added++;
+        }
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null). Keys
+     * the filter rules out are rejected without consulting the wrapped map.
+     */
+    @Override
+    public V get(K key) {
+        if (!filter.mightContain(key)) return null;   // definitely absent
+        return map.get(key);
+    }
+
+    /**
+     * Associates the given value with the given key, returning any overridden value.
+     */
+    @Override
+    public V put(K key, V value) {
+        V answer = map.put(key, value);
+        if (answer == null) {                    // possibly a new key
+            filter.add(key);
+            if (++added > expected)
+                rebuild(2 * Math.max(expected, map.size()));
+            modCount++;
+        }
+        return answer;
+    }
+
+    /**
+     * Removes the entry with the specified key (if any) and returns its value.
+     */
+    @Override
+    public V remove(K key) {
+        if (!filter.mightContain(key)) return null;   // definitely absent
+        V answer = map.remove(key);
+        if (answer != null) modCount++;
+        return answer;
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return map.entrySet();
+    }
+
+    /**
+     * Performs the given action on each key and value of the wrapped map.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        map.forEach(action);
+    }
+}
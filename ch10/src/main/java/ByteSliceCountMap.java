@@ -0,0 +1,203 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An open-addressing map from words, given as slices of bytes, to long counts.
+ *
+ * Words are looked up directly from the buffer that holds the text, without
+ * building a String, and ASCII letters are folded to lowercase as they are
+ * hashed and compared. The bytes of each distinct word are copied once into a
+ * shared arena; the table itself holds only parallel primitive arrays, and
+ * collisions are resolved by linear probing. Entries are never removed.
+ */
+public class ByteSliceCountMap {
+    private static final int FNV_OFFSET = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private int[] hashes = new int[1024];      // hash of the word in each slot
+    private int[] offsets = new int[1024];     // arena offset of the word in each slot (-1 if empty)
+    private int[] lengths = new int[1024];     // length of the word in each slot
+    private long[] counts = new long[1024];    // count of the word in each slot
+    private byte[] arena = new byte[1 << 14];  // the lowercase bytes of every distinct word
+    private int arenaSize = 0;                 // bytes of arena in use
+    private int n = 0;                         // number of distinct words
+
+    /**
+     * Constructs an initially empty map.
+     */
+    public ByteSliceCountMap() {
+        Arrays.fill(offsets, -1);
+    }
+
+    /**
+     * Returns the number of distinct words in the map.
+     */
+    public int size() {
+        return n;
+    }
+
+    /** Returns the lowercase form of an ASCII letter (other bytes are not passed in). */
+    private static byte lower(byte b) {
+        return (byte) (b | 0x20);
+    }
+
+    /** Returns the hash of the lowercase form of buf[start..start+len-1]. */
+    private static int hash(ByteBuffer buf, int start, int len) {
+        int h = FNV_OFFSET;
+        for (int j = 0; j < len; j++)
+            h = (h ^ lower(buf.get(start + j))) * FNV_PRIME;
+        return h;
+    }
+
+    /** Returns the hash of arena[start..start+len-1], which is already lowercase. */
+    private static int hash(byte[] bytes, int start, int len) {
+        int h = FNV_OFFSET;
+        for (int j = 0; j < len; j++)
+            h = (h ^ bytes[start + j]) * FNV_PRIME;
+        return h;
+    }
+
+    /** Returns whether slot j holds the lowercase form of buf[start..start+len-1]. */
+    private boolean matches(int j, ByteBuffer buf, int start, int len) {
+        if (lengths[j] != len) return false;
+        int off = offsets[j];
+        for (int i = 0; i < len; i++)
+            if (arena[off + i] != lower(buf.get(start + i))) return false;
+        return true;
+    }
+
+    /** Returns whether slot j holds bytes[start..start+len-1]. */
+    private boolean matches(int j, byte[] bytes, int start, int len) {
+        return lengths[j] == len
+                && Arrays.equals(arena, offsets[j], offsets[j] + len, bytes, start, start + len);
+    }
+
+    /** Returns the home slot of a word with the given hash. */
+    private int slotFor(int h) {
+        return (h ^ (h >>> 16)) & (offsets.length - 1);
+    }
+
+    /** Stores a new word, whose bytes are already at arena[off..off+len-1], in empty slot j. */
+    private void claim(int j, int h, int off, int len, long count) {
+        hashes[j] = h;
+        offsets[j] = off;
+        lengths[j] = len;
+        counts[j] = count;
+        if (++n > offsets.length / 2)
+            resize(2 * offsets.length);
+    }
+
+    /** Reserves len bytes at the end of the arena and returns their offset. */
+    private int reserve(int len) {
+        if (arenaSize + len > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(arenaSize + len, 2 * arena.length));
+        int off = arenaSize;
+        arenaSize += len;
+        return off;
+    }
+
+    /**
+     * Adds delta to the count of the word in buf[start..start+len-1], whose
+     * bytes must all be ASCII letters.
+     */
+    public void add(ByteBuffer buf, int start, int len, long delta) {
+        int h = hash(buf, start, len);
+        int j = slotFor(h);
+        while (offsets[j] != -1) {
+            if (hashes[j] == h && matches(j, buf, start, len)) {
+                counts[j] += delta;
+                return;
+            }
+            j = (j + 1) & (offsets.length - 1);
+        }
+        int off = reserve(len);
+        for (int i = 0; i < len; i++)
+            arena[off + i] = lower(buf.get(start + i));
+        claim(j, h, off, len, delta);
+    }
+
+    /** Adds delta to the count of the lowercase word in bytes[start..start+len-1]. */
+    private void add(byte[] bytes, int start, int len, long delta) {
+        int h = hash(bytes, start, len);
+        int j = slotFor(h);
+        while (offsets[j] != -1) {
+            if (hashes[j] == h && matches(j, bytes, start, len)) {
+                counts[j] += delta;
+                return;
+            }
+            j = (j + 1) & (offsets.length - 1);
+        }
+        int off = reserve(len);
+        System.arraycopy(bytes, start, arena, off, len);
+        claim(j, h, off, len, delta);
+    }
+
+    /** Rehashes every word into a table of the given capacity (a power of two). */
+    private void resize(int cap) {
+        int[] oldHashes = hashes, oldOffsets = offsets, oldLengths = lengths;
+        long[] oldCounts = counts;
+        hashes = new int[cap];
+        offsets = new int[cap];
+        lengths = new int[cap];
+        counts = new long[cap];
+        Arrays.fill(offsets, -1);
+        for (int i = 0; i < oldOffsets.length; i++)
+            if (oldOffsets[i] != -1) {
+                int j = slotFor(oldHashes[i]);
+                while (offsets[j] != -1)
+                    j = (j + 1) & (cap - 1);
+                hashes[j] = oldHashes[i];
+                offsets[j] = oldOffsets[i];
+                lengths[j] = oldLengths[i];
+                counts[j] = oldCounts[i];
+            }
+    }
+
+    /**
+     * Adds every count of the other map into this one.
+     */
+    public void addAll(ByteSliceCountMap other) {
+        for (int i = 0; i < other.offsets.length; i++)
+            if (other.offsets[i] != -1)
+                add(other.arena, other.offsets[i], other.lengths[i], other.counts[i]);
+    }
+
+    /**
+     * Returns the count of the given word (or zero, if absent).
+     */
+    public long get(String word) {
+        byte[] bytes = word.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+        int h = hash(bytes, 0, bytes.length);
+        for (int j = slotFor(h); offsets[j] != -1; j = (j + 1) & (offsets.length - 1))
+            if (hashes[j] == h && matches(j, bytes, 0, bytes.length))
+                return counts[j];
+        return 0;
+    }
+
+    /**
+     * Returns the k most frequent words, most frequent first, as entries from
+     * count to word. A HeapPriorityQueue holds the best k seen so far, so only
+     * those k words are ever converted to Strings.
+     */
+    public List<Entry<Long, String>> topK(int k) {
+        HeapPriorityQueue<Long, Integer> best = new HeapPriorityQueue<>();  // minimum on top
+        for (int j = 0; j < offsets.length; j++)
+            if (offsets[j] != -1 && k > 0 && (best.size() < k || counts[j] > best.min().getKey())) {
+                best.insert(counts[j], j);
+                if (best.size() > k)
+                    best.removeMin();                  // evict the least frequent
+            }
+        LinkedList<Entry<Long, String>> answer = new LinkedList<>();
+        while (!best.isEmpty()) {
+            Entry<Long, Integer> e = best.removeMin();
+            int j = e.getValue();
+            String word = new String(arena, offsets[j], lengths[j], StandardCharsets.US_ASCII);
+            answer.addFirst(new AbstractMap.MapEntry<>(e.getKey(), word));
+        }
+        return answer;
+    }
+}
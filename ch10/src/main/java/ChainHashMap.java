@@ -1,10 +1,18 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 public class ChainHashMap<K, V> extends AbstractHashMap<K, V> {
+    private static final int TREEIFY_THRESHOLD = 8;    // bucket size above which keys are kept sorted
+    private static final int UNTREEIFY_THRESHOLD = 6;  // bucket size below which sorting is dropped
 
-    // a fixed capacity array of UnsortedTableMap that serve as buckets
+    // a fixed capacity array of buckets; each is an UnsortedTableMap, or, once it
+    // holds more than TREEIFY_THRESHOLD mutually comparable keys, a SortedBucket
 
-    private UnsortedTableMap<K, V>[] table;  // initialized within createTable
+    private AbstractMap<K, V>[] table;  // initialized within createTable
 
     public ChainHashMap() {
         super();
@@ -18,34 +26,128 @@ public class ChainHashMap<K, V> extends AbstractHashMap<K, V> {
         super(cap, p);
     }
 
+    /**
+     * Creates an empty table having length equal to current capacity.
+     */
     @Override
-    public int size() {
-        return 0;
+    @SuppressWarnings({"unchecked"})
+    protected void createTable() {
+        table = (AbstractMap<K, V>[]) new AbstractMap[capacity];  // safe cast
     }
 
-    @Override
-    public boolean isEmpty() {
-        return false;
-    }
+    /**
+     * A bucket of Comparable keys of one class, kept in compareTo order. Keys are
+     * still identified by equals: a binary search finds the run of keys that
+     * compare as equal to the one sought, and each key of the run is then checked
+     * with equals, so keys whose compareTo is inconsistent with equals (such as
+     * BigDecimal) behave as they do in an unsorted bucket.
+     */
+    private static class SortedBucket<K, V> extends AbstractMap<K, V> {
+        private ArrayList<MapEntry<K, V>> table = new ArrayList<>();
 
-    @Override
-    public V get(K key) {
-        return null;
+        @SuppressWarnings({"unchecked"})
+        private int compare(K a, K b) {
+            return ((Comparable<K>) a).compareTo(b);
+        }
+
+        /** Returns the index of the first entry whose key is not less than key. */
+        private int lowerBound(K key) {
+            int low = 0, high = table.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(table.get(mid).getKey(), key) < 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * Returns the index of the entry whose key equals key, or -(j+1) where j
+         * is the index just past the run of keys that compare as equal to it.
+         */
+        private int findIndex(K key) {
+            int j = lowerBound(key);
+            while (j < table.size() && compare(table.get(j).getKey(), key) == 0) {
+                if (table.get(j).getKey().equals(key)) return j;
+                j++;
+            }
+            return -(j + 1);
+        }
+
+        /** Returns the class of the bucket's keys. */
+        Class<?> keyClass() {
+            return table.get(0).getKey().getClass();
+        }
+
+        @Override
+        public int size() {
+            return table.size();
+        }
+
+        @Override
+        public V get(K key) {
+            int j = findIndex(key);
+            return (j < 0 ? null : table.get(j).getValue());
+        }
+
+        @Override
+        public V put(K key, V value) {
+            int j = findIndex(key);
+            if (j >= 0)
+                return table.get(j).setValue(value);
+            table.add(-(j + 1), new MapEntry<>(key, value));
+            modCount++;
+            return null;
+        }
+
+        @Override
+        public V remove(K key) {
+            int j = findIndex(key);
+            if (j < 0) return null;
+            modCount++;
+            return table.remove(j).getValue();
+        }
+
+        @Override
+        public Iterable<Entry<K, V>> entrySet() {
+            return Collections.unmodifiableList(table);
+        }
     }
 
-    @Override
-    public V put(K key, V value) {
-        return null;
+    // utilities for converting between unsorted and sorted buckets
+
+    /**
+     * Returns true if bucket can be searched by key k: it is unsorted, or it is
+     * sorted by keys of exactly the same class as k.
+     */
+    private boolean isSearchable(AbstractMap<K, V> bucket, K k) {
+        if (!(bucket instanceof SortedBucket)) return true;
+        return ((SortedBucket<K, V>) bucket).keyClass() == k.getClass();
     }
 
     /**
-     * Creates an empty table having length equal to current capacity.
+     * Returns true if all keys of the bucket are Comparable instances of one class.
      */
-    @Override
-    protected void createTable() {
-        table = (UnsortedTableMap<K, V>[]) new UnsortedTableMap[capacity];
+    private boolean isSortable(AbstractMap<K, V> bucket) {
+        Class<?> type = null;
+        for (Entry<K, V> e : bucket.entrySet()) {
+            Class<?> c = e.getKey().getClass();
+            if (type == null) type = c;
+            if (c != type || !(e.getKey() instanceof Comparable)) return false;
+        }
+        return true;
     }
 
+    /**
+     * Replaces bucket h with a copy of the same entries using the given representation.
+     */
+    private void convert(int h, AbstractMap<K, V> replacement) {
+        for (Entry<K, V> e : table[h].entrySet())
+            replacement.put(e.getKey(), e.getValue());
+        table[h] = replacement;
+    }
 
     /**
      * Returns value associated with key k in bucket with has value h, or else null.
@@ -56,8 +158,13 @@ public class ChainHashMap<K, V> extends AbstractHashMap<K, V> {
      */
     @Override
     protected V bucketGet(int h, K k) {
-        UnsortedTableMap<K, V> bucket = table[h];
+        AbstractMap<K, V> bucket = table[h];
         if (bucket == null) return null;
+        if (!isSearchable(bucket, k)) {           // a foreign key type; fall back to a scan
+            for (Entry<K, V> e : bucket.entrySet())
+                if (e.getKey().equals(k)) return e.getValue();
+            return null;
+        }
         return bucket.get(k);
     }
 
@@ -66,12 +173,16 @@ public class ChainHashMap<K, V> extends AbstractHashMap<K, V> {
      */
     @Override
     protected V bucketPut(int h, K k, V v) {
-        UnsortedTableMap<K, V> bucket = table[h];
+        AbstractMap<K, V> bucket = table[h];
         if (bucket == null)
             bucket = table[h] = new UnsortedTableMap<>();
+        else if (!isSearchable(bucket, k))
+            convert(h, bucket = new UnsortedTableMap<>());  // mixed key types cannot stay sorted
         int oldSize = bucket.size();
         V answer = bucket.put(k, v);
         n += (bucket.size() - oldSize);  // size may have increased
+        if (bucket.size() > TREEIFY_THRESHOLD && bucket instanceof UnsortedTableMap && isSortable(bucket))
+            convert(h, new SortedBucket<>());   // too many collisions; switch to binary search
         return answer;
     }
 
@@ -80,40 +191,106 @@ public class ChainHashMap<K, V> extends AbstractHashMap<K, V> {
      */
     @Override
     protected V bucketRemove(int h, K k) {
-        UnsortedTableMap<K, V> bucket = table[h];
+        AbstractMap<K, V> bucket = table[h];
         if (bucket == null) return null;
+        if (!isSearchable(bucket, k)) {           // a foreign key type; find an equal key by a scan
+            K found = null;
+            for (Entry<K, V> e : bucket.entrySet())
+                if (e.getKey().equals(k)) {
+                    found = e.getKey();
+                    break;
+                }
+            if (found == null) return null;       // nothing to remove; the bucket stays sorted
+            k = found;                            // the stored key can be searched for
+        }
         int oldSize = bucket.size();
         V answer = bucket.remove(k);
         n -= (oldSize - bucket.size());  // size may have decreased
+        if (bucket.isEmpty())
+            table[h] = null;
+        else if (bucket.size() < UNTREEIFY_THRESHOLD && bucket instanceof SortedBucket)
+            convert(h, new UnsortedTableMap<>());
         return answer;
     }
 
+    /**
+     * Returns the entries stored in bucket h (possibly none).
+     */
     @Override
-    public V remove(K key) {
-        return null;
+    protected Iterable<Entry<K, V>> bucketEntries(int h) {
+        if (table[h] == null) return Collections.emptyList();
+        return table[h].entrySet();
     }
 
     @Override
-    public Iterable<K> keySet() {
-        return null;
+    protected AbstractHashMap<K, V> createMap(int cap, int p) {
+        return new ChainHashMap<>(cap, p);
     }
 
     @Override
-    public Iterable<V> values() {
-        return null;
+    protected void adoptTable(AbstractHashMap<K, V> m) {
+        table = ((ChainHashMap<K, V>) m).table;
+    }
+
+    // Support for public entrySet method...
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private int h = 0;                                // next bucket to examine
+        private Iterator<Entry<K, V>> bucketIterator = null;  // walks the current bucket
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            while ((bucketIterator == null || !bucketIterator.hasNext()) && h < capacity) {
+                if (table[h] != null)
+                    bucketIterator = table[h].entrySet().iterator();
+                h++;
+            }
+            return bucketIterator != null && bucketIterator.hasNext();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            return bucketIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class EntryIterable implements Iterable<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            finishRehash();                               // iterate a single, settled table
+            return new EntryIterator();
+        }
     }
 
     /**
+     * Returns an iterable collection of all key-value entries of the map. The
+     * iteration walks the buckets in place and fails fast if the map is modified.
      *
      * @return an iterable collection of all key-value entries of the map.
      */
     @Override
     public Iterable<Entry<K, V>> entrySet() {
-        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        return new EntryIterable();
+    }
+
+    /**
+     * Performs the given action on each key and value, walking the buckets in place.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        finishRehash();
+        int expectedModCount = modCount;
         for (int h = 0; h < capacity; h++)
-            if (table[h] != null)
-                for (Entry<K,V> entry : table[h].entrySet())
-                    buffer.add(entry);
-        return buffer;
+            if (table[h] != null) {
+                table[h].forEach(action);
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            }
     }
 }
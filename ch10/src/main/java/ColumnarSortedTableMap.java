@@ -0,0 +1,302 @@
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Sorted map that keeps keys and values in separate, parallel arrays.
+ *
+ * Compared with SortedTableMap, a search touches only the key array (no MapEntry
+ * indirection), uses an iterative binary search whose loop body has no
+ * data-dependent exit, and insertion shifts with System.arraycopy. Sorted input
+ * can be loaded in linear time with putAll. Entries reported by the SortedMap
+ * methods are created on demand.
+ */
+public class ColumnarSortedTableMap<K, V> extends AbstractSortedMap<K, V> {
+    private Object[] keys = new Object[16];   // keys[0..n-1] in increasing order
+    private Object[] vals = new Object[16];   // vals[j] is the value for keys[j]
+    private int n = 0;                        // number of entries
+
+    public ColumnarSortedTableMap() {
+        super();
+    }
+
+    public ColumnarSortedTableMap(Comparator<K> comp) {
+        super(comp);
+    }
+
+    // private utilities
+    @SuppressWarnings({"unchecked"})
+    private K keyAt(int j) {
+        return (K) keys[j];                    // safe cast
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private V valueAt(int j) {
+        return (V) vals[j];                    // safe cast
+    }
+
+    /**
+     * Returns the smallest index storing a key greater than or equal to k (or n, if none).
+     * Each step halves the range without an early exit, so the number of
+     * iterations depends only on n.
+     */
+    private int findIndex(K key) {
+        if (n == 0) return 0;
+        int base = 0, len = n;
+        while (len > 1) {
+            int half = len >>> 1;
+            if (compare(keyAt(base + half), key) < 0)
+                base += half;                  // answer lies beyond the midpoint
+            len -= half;
+        }
+        return base + (compare(keyAt(base), key) < 0 ? 1 : 0);
+    }
+
+    /** Returns true if index j stores a key equal to k. */
+    private boolean matches(int j, K key) {
+        return j < n && compare(keyAt(j), key) == 0;
+    }
+
+    /** Ensures capacity for at least the given number of entries. */
+    private void ensureCapacity(int cap) {
+        if (cap > keys.length) {
+            int newCap = Math.max(cap, 2 * keys.length);
+            Object[] newKeys = new Object[newCap];
+            Object[] newVals = new Object[newCap];
+            System.arraycopy(keys, 0, newKeys, 0, n);
+            System.arraycopy(vals, 0, newVals, 0, n);
+            keys = newKeys;
+            vals = newVals;
+        }
+    }
+
+    /** Returns a new entry for index j, or else null if j is out of range. */
+    private Entry<K, V> safeEntry(int j) {
+        if (j < 0 || j >= n) return null;
+        return new MapEntry<>(keyAt(j), valueAt(j));
+    }
+
+    // public methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null).
+     */
+    @Override
+    public V get(K key) {
+        int j = findIndex(key);
+        if (!matches(j, key)) return null;     // no match
+        return valueAt(j);
+    }
+
+    /**
+     * Associates the given value with the given key, returning any overridden value.
+     */
+    @Override
+    public V put(K key, V value) {
+        int j = findIndex(key);
+        if (matches(j, key)) {                 // match exists
+            V old = valueAt(j);
+            vals[j] = value;
+            return old;
+        }
+        ensureCapacity(n + 1);
+        System.arraycopy(keys, j, keys, j + 1, n - j);   // open a gap at index j
+        System.arraycopy(vals, j, vals, j + 1, n - j);
+        keys[j] = key;
+        vals[j] = value;
+        n++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes the entry having key k (if any) and returns its associated value.
+     */
+    @Override
+    public V remove(K key) {
+        int j = findIndex(key);
+        if (!matches(j, key)) return null;     // no match
+        V old = valueAt(j);
+        System.arraycopy(keys, j + 1, keys, j, n - j - 1);  // close the gap
+        System.arraycopy(vals, j + 1, vals, j, n - j - 1);
+        n--;
+        keys[n] = null;                        // help garbage collection
+        vals[n] = null;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Adds the given entries, whose keys must be in strictly increasing order,
+     * by merging them with the current contents in O(n + m) time. Values of the
+     * new entries replace those of existing entries with equal keys.
+     *
+     * @throws IllegalArgumentException if the arrays differ in length or the keys
+     *                                  are not strictly increasing
+     */
+    public void putAll(K[] newKeys, V[] newValues) throws IllegalArgumentException {
+        if (newKeys.length != newValues.length)
+            throw new IllegalArgumentException("Keys and values differ in length");
+        int m = newKeys.length;
+        for (int j = 1; j < m; j++)
+            if (compare(newKeys[j - 1], newKeys[j]) >= 0)
+                throw new IllegalArgumentException("Keys are not in increasing order");
+        Object[] mergedKeys = new Object[Math.max(16, n + m)];
+        Object[] mergedVals = new Object[mergedKeys.length];
+        int i = 0, j = 0, k = 0;
+        while (i < n || j < m) {
+            int c = (i == n ? 1 : j == m ? -1 : compare(keyAt(i), newKeys[j]));
+            if (c < 0) {                       // take next existing entry
+                mergedKeys[k] = keys[i];
+                mergedVals[k++] = vals[i++];
+            } else {                           // take next new entry, dropping an equal old one
+                if (c == 0) i++;
+                mergedKeys[k] = newKeys[j];
+                mergedVals[k++] = newValues[j++];
+            }
+        }
+        keys = mergedKeys;
+        vals = mergedVals;
+        n = k;
+        modCount++;
+    }
+
+    /**
+     * Returns the entry having the least key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> firstEntry() {
+        return safeEntry(0);
+    }
+
+    /**
+     * Returns the entry having the greatest key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> lastEntry() {
+        return safeEntry(n - 1);
+    }
+
+    /**
+     * Returns the entry with least key greater than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> ceilingEntry(K key) throws IllegalArgumentException {
+        return safeEntry(findIndex(key));
+    }
+
+    /**
+     * Returns the entry with greatest key less than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> floorEntry(K key) throws IllegalArgumentException {
+        int j = findIndex(key);
+        if (!matches(j, key))
+            j--;                               // look one earlier (unless we had found a perfect match)
+        return safeEntry(j);
+    }
+
+    /**
+     * Returns the entry with greatest key strictly less than given key (if any).
+     */
+    @Override
+    public Entry<K, V> lowerEntry(K key) throws IllegalArgumentException {
+        return safeEntry(findIndex(key) - 1);  // go strictly before the ceiling entry
+    }
+
+    /**
+     * Returns the entry with least key strictly greater than given key (if any).
+     */
+    @Override
+    public Entry<K, V> higherEntry(K key) throws IllegalArgumentException {
+        int j = findIndex(key);
+        if (matches(j, key))
+            j++;                               // go past exact match
+        return safeEntry(j);
+    }
+
+    // support for live iterators for entrySet() and subMap() follow
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private int j;                         // index of next entry to report
+        private K stop;                        // exclusive upper bound (or null for none)
+        private int expectedModCount = modCount;
+
+        EntryIterator(int startIndex, K stop) {
+            j = startIndex;
+            this.stop = stop;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return j < n && (stop == null || compare(keyAt(j), stop) < 0);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            Entry<K, V> answer = new MapEntry<>(keyAt(j), valueAt(j));
+            j++;
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class EntryIterable implements Iterable<Entry<K, V>> {
+        private K start, stop;                 // range of keys (null for unbounded)
+
+        EntryIterable(K start, K stop) {
+            this.start = start;
+            this.stop = stop;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator(start == null ? 0 : findIndex(start), stop);
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return new EntryIterable(null, null);
+    }
+
+    /**
+     * Returns an iterable of entries with keys in the range from fromKey inclusive
+     * to toKey exclusive.
+     */
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
+        return new EntryIterable(fromKey, toKey);
+    }
+
+    /**
+     * Performs the given action on each key and value, in increasing order of keys,
+     * without creating entries.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int j = 0; j < n; j++) {
+            action.accept(keyAt(j), valueAt(j));
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Thread-safe map implementation using a hash table with separate chaining.
+ *
+ * Buckets are UnsortedTableMap instances that are never modified once they are
+ * published: an update copies the affected bucket while holding the lock for its
+ * stripe, and then installs the copy. Reads therefore take no locks at all. When
+ * the table grows, threads cooperate by claiming chunks of old buckets to move;
+ * a moved bucket is replaced by the MOVED marker, which directs readers and
+ * writers to the new table. Iteration is over a snapshot of the entries.
+ *
+ * Null keys and null values are not permitted.
+ */
+public class ConcurrentChainHashMap<K, V> extends AbstractMap<K, V> {
+    private static final int STRIPES = 64;          // maximum number of locks per table
+    private static final int TRANSFER_CHUNK = 16;   // buckets claimed at a time while resizing
+    @SuppressWarnings("rawtypes")
+    private static final UnsortedTableMap MOVED = new UnsortedTableMap();  // marker for a moved bucket
+
+    //---------------- nested Table class ----------------
+    /** A fixed capacity array of buckets, with its locks and resizing state. */
+    private static class Table<K, V> {
+        final int capacity;
+        final AtomicReferenceArray<UnsortedTableMap<K, V>> buckets;
+        final Object[] locks;
+        final AtomicReference<Table<K, V>> next = new AtomicReference<>();  // table being filled (if any)
+        final AtomicInteger transferIndex = new AtomicInteger(0);        // next bucket to be claimed
+        final AtomicInteger transferred = new AtomicInteger(0);          // buckets moved so far
+
+        Table(int cap) {
+            capacity = cap;
+            buckets = new AtomicReferenceArray<>(cap);
+            locks = new Object[Math.min(cap, STRIPES)];
+            for (int j = 0; j < locks.length; j++)
+                locks[j] = new Object();
+        }
+
+        Object lockFor(int h) {
+            return locks[h % locks.length];
+        }
+    } //----------- end of nested Table class -----------
+
+    private volatile Table<K, V> table;  // the current table
+    private final LongAdder count = new LongAdder();  // number of entries in the map
+    private final int prime;  // prime factor
+    private final long scale, shift;  // the shift and scaling factors
+
+    /**
+     * Creates a hash table with the given capacity and prime factor.
+     */
+    public ConcurrentChainHashMap(int cap, int p) {
+        prime = p;
+        Random rand = new Random();
+        scale = rand.nextInt(prime - 1) + 1;
+        shift = rand.nextInt(prime);
+        table = new Table<>(cap);
+    }
+
+    /**
+     * Creates a hash table with given capacity and prime factor 109345121.
+     */
+    public ConcurrentChainHashMap(int cap) {
+        this(cap, 109345121);
+    }
+
+    /**
+     * Creates a hash table with capacity 17 and prime factor 109345121.
+     */
+    public ConcurrentChainHashMap() {
+        this(17);
+    }
+
+    // private utilities
+    private int hashValue(K key, Table<K, V> t) {
+        return (int) ((Math.abs(key.hashCode() * scale + shift) % prime) % t.capacity);
+    }
+
+    /** Returns a copy of bucket b (possibly null) with any entry for key k left out. */
+    private UnsortedTableMap<K, V> copyWithout(UnsortedTableMap<K, V> b, K k) {
+        UnsortedTableMap<K, V> copy = new UnsortedTableMap<>();
+        if (b != null)
+            for (Entry<K, V> e : b.entrySet())
+                if (!e.getKey().equals(k))
+                    copy.put(e.getKey(), e.getValue());  // fresh entries, never shared
+        return copy;
+    }
+
+    /**
+     * Core of all updates. Replaces the value v currently associated with key
+     * (or null) by fn(key, v), where a null result removes the entry, and
+     * returns either the old or the new value.
+     */
+    private V update(K key, BiFunction<? super K, ? super V, ? extends V> fn, boolean returnOld) {
+        if (key == null) throw new NullPointerException();
+        Table<K, V> t = table;
+        while (true) {
+            int h = hashValue(key, t);
+            boolean done = false;
+            V old = null, answer = null;
+            synchronized (t.lockFor(h)) {
+                UnsortedTableMap<K, V> b = t.buckets.get(h);
+                if (b != MOVED) {
+                    old = (b == null ? null : b.get(key));
+                    answer = fn.apply(key, old);
+                    if (answer != old) {
+                        UnsortedTableMap<K, V> copy = copyWithout(b, key);
+                        if (answer != null) copy.put(key, answer);
+                        t.buckets.set(h, copy.isEmpty() ? null : copy);  // publish the new bucket
+                    }
+                    done = true;
+                }
+            }
+            if (!done) {                            // bucket was moved; continue in the new table
+                helpTransfer(t);
+                t = t.next.get();
+                continue;
+            }
+            if (old == null && answer != null) {
+                count.increment();
+                if (t == table && count.sum() > t.capacity / 2)
+                    startResize(t);
+            } else if (old != null && answer == null)
+                count.decrement();
+            return (returnOld ? old : answer);
+        }
+    }
+
+    /** Begins growing table t, unless another thread has already done so, and helps move buckets. */
+    private void startResize(Table<K, V> t) {
+        if (t.next.get() == null)
+            t.next.compareAndSet(null, new Table<>(2 * t.capacity - 1));
+        helpTransfer(t);
+    }
+
+    /** Claims and moves chunks of t's buckets to its successor until none remain unclaimed. */
+    private void helpTransfer(Table<K, V> t) {
+        Table<K, V> nt = t.next.get();
+        if (nt == null) return;
+        int start;
+        while ((start = t.transferIndex.getAndAdd(TRANSFER_CHUNK)) < t.capacity) {
+            int end = Math.min(start + TRANSFER_CHUNK, t.capacity);
+            for (int h = start; h < end; h++)
+                transferBucket(t, nt, h);
+            if (t.transferred.addAndGet(end - start) == t.capacity)
+                table = nt;                       // the last mover installs the new table
+        }
+    }
+
+    /** Moves the entries of bucket h of t into nt and marks the bucket as moved. */
+    @SuppressWarnings("unchecked")
+    private void transferBucket(Table<K, V> t, Table<K, V> nt, int h) {
+        synchronized (t.lockFor(h)) {           // old locks are always taken before new ones
+            UnsortedTableMap<K, V> b = t.buckets.get(h);
+            if (b != null)
+                for (Entry<K, V> e : b.entrySet()) {
+                    K k = e.getKey();
+                    int j = hashValue(k, nt);
+                    synchronized (nt.lockFor(j)) {
+                        UnsortedTableMap<K, V> copy = copyWithout(nt.buckets.get(j), k);
+                        copy.put(k, e.getValue());
+                        nt.buckets.set(j, copy);
+                    }
+                }
+            t.buckets.set(h, (UnsortedTableMap<K, V>) MOVED);
+        }
+    }
+
+    // public methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return (int) count.sum();
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null), without locking.
+     */
+    @Override
+    public V get(K key) {
+        Table<K, V> t = table;
+        while (true) {
+            UnsortedTableMap<K, V> b = t.buckets.get(hashValue(key, t));
+            if (b != MOVED)
+                return (b == null ? null : b.get(key));
+            t = t.next.get();                   // bucket was moved; look in the new table
+        }
+    }
+
+    /**
+     * Associates given value with given key, returning the previous value (or null).
+     */
+    @Override
+    public V put(K key, V value) {
+        if (value == null) throw new NullPointerException();
+        return update(key, (k, old) -> value, true);
+    }
+
+    /**
+     * Removes the entry with the specified key (if any) and returns its value.
+     */
+    @Override
+    public V remove(K key) {
+        return update(key, (k, old) -> null, true);
+    }
+
+    /**
+     * Atomically associates the value with the key unless the key is already
+     * present, returning the existing value (or null if there was none).
+     */
+    public V putIfAbsent(K key, V value) {
+        if (value == null) throw new NullPointerException();
+        return update(key, (k, old) -> (old != null ? old : value), true);
+    }
+
+    /**
+     * Atomically replaces the value for the key with fn(key, oldValue), where
+     * oldValue is null if absent and a null result removes the entry. Returns the
+     * new value (or null). The function must not modify this map.
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> fn) {
+        return update(key, fn, false);
+    }
+
+    /**
+     * Atomically associates the key with value if absent, or else with
+     * fn(oldValue, value), where a null result removes the entry. Returns the
+     * new value (or null). The function must not modify this map.
+     */
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> fn) {
+        if (value == null) throw new NullPointerException();
+        return update(key, (k, old) -> (old == null ? value : fn.apply(old, value)), false);
+    }
+
+    /**
+     * Returns a snapshot of all key-value entries of the map. Any resize in
+     * progress is completed first.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        while (true) {
+            Table<K, V> t = table;
+            if (t.next.get() != null) {         // wait out the resize, helping where possible
+                helpTransfer(t);
+                Thread.yield();
+                continue;
+            }
+            ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+            boolean moved = false;
+            for (int h = 0; h < t.capacity && !moved; h++) {
+                UnsortedTableMap<K, V> b = t.buckets.get(h);
+                if (b == MOVED)
+                    moved = true;               // a new resize began; start over
+                else if (b != null)
+                    for (Entry<K, V> e : b.entrySet())
+                        buffer.add(e);
+            }
+            if (!moved)
+                return buffer;
+        }
+    }
+}
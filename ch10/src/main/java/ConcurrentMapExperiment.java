@@ -0,0 +1,67 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical test of how word-count style updates scale with the
+ * number of threads, comparing ConcurrentChainHashMap.merge against a
+ * ProbeHashMap guarded by a single lock. Thread counts double from 1 to 32.
+ *
+ * The first command line argument can be used to change the number of
+ * updates per thread, and the second the number of distinct keys.
+ */
+public class ConcurrentMapExperiment {
+
+    /** Runs the given per-thread task on t threads at once, returning elapsed milliseconds. */
+    private static long runThreads(int t, Runnable task) throws InterruptedException {
+        Thread[] workers = new Thread[t];
+        for (int j = 0; j < t; j++)
+            workers[j] = new Thread(task);
+        long startTime = System.currentTimeMillis();
+        for (Thread w : workers)
+            w.start();
+        for (Thread w : workers)
+            w.join();
+        return Math.max(1, System.currentTimeMillis() - startTime);
+    }
+
+    /** Returns an array of keys drawn at random from a range of the given size. */
+    private static Integer[] randomKeys(int ops, int distinct, long seed) {
+        Integer[] keys = new Integer[ops];
+        Random rand = new Random(seed);
+        for (int j = 0; j < ops; j++)
+            keys[j] = rand.nextInt(distinct);
+        return keys;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int ops = 1000000;
+        int distinct = 100000;
+        try {
+            if (args.length > 0)
+                ops = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                distinct = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+        final Integer[] keys = randomKeys(ops, distinct, 42);
+
+        for (int t = 1; t <= 32; t *= 2) {
+            ConcurrentChainHashMap<Integer, Integer> concurrent = new ConcurrentChainHashMap<>();
+            long elapsed = runThreads(t, () -> {
+                for (Integer k : keys)
+                    concurrent.merge(k, 1, Integer::sum);
+            });
+            System.out.println(String.format("threads: %2d  ConcurrentChainHashMap: %8.2f Mops/s",
+                    t, (double) t * ops / elapsed / 1000));
+
+            Map<Integer, Integer> locked = new ProbeHashMap<>();
+            elapsed = runThreads(t, () -> {
+                for (Integer k : keys)
+                    synchronized (locked) {
+                        Integer count = locked.get(k);
+                        locked.put(k, 1 + (count == null ? 0 : count));
+                    }
+            });
+            System.out.println(String.format("threads: %2d  synchronized map:       %8.2f Mops/s",
+                    t, (double) t * ops / elapsed / 1000));
+        }
+    }
+}
@@ -0,0 +1,369 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe sorted map implemented as a lock-free skip list.
+ *
+ * Each node's forward links are AtomicMarkableReferences; marking a node's links
+ * declares it deleted, and any thread that later passes the node unlinks it with
+ * compare-and-set (the scheme of Harris, Michael, Herlihy and Shavit). A removal
+ * first changes the node's value to null, which is the moment the entry leaves
+ * the map; an update of an existing key changes the value with compare-and-set,
+ * so readers always see a complete value. No operation ever blocks.
+ *
+ * Iterations of entrySet and subMap are weakly consistent: they never fail,
+ * report each key at most once, in increasing order, and reflect some updates
+ * made during the iteration. Entries returned are immutable snapshots. Null
+ * keys and null values are not permitted, and size is exact only when the map
+ * is quiescent.
+ */
+public class ConcurrentSkipListSortedMap<K, V> extends AbstractSortedMap<K, V> {
+    private static final int MAX_LEVEL = 32;
+
+    //---------------- nested Node class ----------------
+    private static class Node<K, V> {
+        final K key;
+        final AtomicReference<V> value;                    // null once removed
+        final AtomicMarkableReference<Node<K, V>>[] next;  // marked once deleted
+
+        @SuppressWarnings({"unchecked"})
+        Node(K key, V value, int height) {
+            this.key = key;
+            this.value = new AtomicReference<>(value);
+            next = (AtomicMarkableReference<Node<K, V>>[]) new AtomicMarkableReference[height];
+            for (int i = 0; i < height; i++)
+                next[i] = new AtomicMarkableReference<>(null, false);
+        }
+    } //----------- end of nested Node class -----------
+
+    private final Node<K, V> head = new Node<>(null, null, MAX_LEVEL);  // sentinel before every key
+    private final LongAdder count = new LongAdder();                     // number of entries
+
+    /**
+     * Constructs an empty map using the natural ordering of keys.
+     */
+    public ConcurrentSkipListSortedMap() {
+        super();
+    }
+
+    /**
+     * Constructs an empty map using the given comparator to order keys.
+     */
+    public ConcurrentSkipListSortedMap(Comparator<K> comp) {
+        super(comp);
+    }
+
+    // private utilities
+
+    /** Returns a random height, each level with half the probability of the one below. */
+    private static int randomHeight() {
+        int h = 1 + Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt());
+        return Math.min(h, MAX_LEVEL);
+    }
+
+    /**
+     * Fills preds[i] with the last node on level i whose key is less than key
+     * (or the head), and succs[i] with the node that follows it (or null),
+     * unlinking any deleted nodes met along the way. Returns the node with the
+     * given key if it is present on the bottom level, or else null.
+     */
+    private Node<K, V> find(K key, Node<K, V>[] preds, Node<K, V>[] succs) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            Node<K, V> pred = head;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                Node<K, V> curr = pred.next[level].getReference();
+                while (curr != null) {
+                    Node<K, V> succ = curr.next[level].get(marked);
+                    while (marked[0]) {                        // curr is deleted; unlink it
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false))
+                            continue retry;                    // pred changed; start over
+                        curr = succ;
+                        if (curr == null) break;
+                        succ = curr.next[level].get(marked);
+                    }
+                    if (curr == null || compare(curr.key, key) >= 0) break;
+                    pred = curr;                               // advance along the level
+                    curr = succ;
+                }
+                if (preds != null) {
+                    preds[level] = pred;
+                    succs[level] = curr;
+                }
+                if (level == 0)
+                    return (curr != null && compare(curr.key, key) == 0 ? curr : null);
+            }
+        }
+    }
+
+    /** Marks every link of node x, from the top level down, as deleted. */
+    private void markLinks(Node<K, V> x) {
+        boolean[] marked = {false};
+        for (int level = x.next.length - 1; level >= 0; level--) {
+            Node<K, V> succ = x.next[level].get(marked);
+            while (!marked[0]) {
+                x.next[level].attemptMark(succ, true);
+                succ = x.next[level].get(marked);
+            }
+        }
+    }
+
+    /** Returns a snapshot of the entry at node x, or null if x has been removed. */
+    private Entry<K, V> snapshot(Node<K, V> x) {
+        V v = x.value.get();
+        return (v == null ? null : new MapEntry<>(x.key, v));
+    }
+
+    /** Returns the first live entry at or after node x (or null if none). */
+    private Entry<K, V> firstFrom(Node<K, V> x) {
+        for (; x != null; x = x.next[0].getReference()) {
+            Entry<K, V> e = snapshot(x);
+            if (e != null) return e;
+        }
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private Node<K, V>[] newLevels() {
+        return (Node<K, V>[]) new Node[MAX_LEVEL];
+    }
+
+    // public methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return (int) Math.max(0, count.sum());
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null).
+     */
+    @Override
+    public V get(K key) {
+        checkKey(key);
+        Node<K, V> x = find(key, null, null);
+        return (x == null ? null : x.value.get());
+    }
+
+    /**
+     * Associates the given value with the given key, returning any overridden value.
+     *
+     * @throws IllegalArgumentException if the value is null
+     */
+    @Override
+    public V put(K key, V value) throws IllegalArgumentException {
+        checkKey(key);
+        if (value == null) throw new IllegalArgumentException("Null values are not supported");
+        Node<K, V>[] preds = newLevels();
+        Node<K, V>[] succs = newLevels();
+        while (true) {
+            Node<K, V> x = find(key, preds, succs);
+            if (x != null) {                                   // key is present
+                V old = x.value.get();
+                if (old != null) {
+                    if (x.value.compareAndSet(old, value)) return old;
+                    continue;                                  // value changed; try again
+                }
+                markLinks(x);                                  // help a removal in progress
+                continue;
+            }
+            int height = randomHeight();
+            Node<K, V> fresh = new Node<>(key, value, height);
+            for (int level = 0; level < height; level++)
+                fresh.next[level].set(succs[level], false);
+            if (!preds[0].next[0].compareAndSet(succs[0], fresh, false, false))
+                continue;                                      // bottom level changed; try again
+            count.increment();
+            linkUpperLevels(fresh, preds, succs);
+            return null;
+        }
+    }
+
+    /** Links the upper levels of a node already on the bottom level. */
+    private void linkUpperLevels(Node<K, V> x, Node<K, V>[] preds, Node<K, V>[] succs) {
+        boolean[] marked = {false};
+        for (int level = 1; level < x.next.length; level++) {
+            while (true) {
+                Node<K, V> succ = succs[level];
+                Node<K, V> curr = x.next[level].get(marked);
+                if (marked[0]) return;                         // x is being deleted; stop
+                if (curr != succ && !x.next[level].compareAndSet(curr, succ, false, false))
+                    continue;
+                if (preds[level].next[level].compareAndSet(succ, x, false, false))
+                    break;
+                if (find(x.key, preds, succs) != x) return;    // x was removed meanwhile
+            }
+        }
+    }
+
+    /**
+     * Removes the entry having the given key (if any) and returns its associated value.
+     */
+    @Override
+    public V remove(K key) {
+        checkKey(key);
+        Node<K, V> x = find(key, null, null);
+        if (x == null) return null;
+        while (true) {
+            V old = x.value.get();
+            if (old == null) return null;                      // another thread removed it
+            if (x.value.compareAndSet(old, null)) {            // the entry is now gone
+                count.decrement();
+                markLinks(x);
+                find(key, null, null);                         // unlink the node
+                return old;
+            }
+        }
+    }
+
+    /**
+     * Returns the entry having the least key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> firstEntry() {
+        return firstFrom(head.next[0].getReference());
+    }
+
+    /**
+     * Returns the entry having the greatest key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> lastEntry() {
+        Node<K, V> x = head;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--)
+            for (Node<K, V> next = x.next[level].getReference(); next != null; next = x.next[level].getReference())
+                x = next;                                      // go as far right as possible
+        if (x == head) return null;
+        Entry<K, V> e = snapshot(x);
+        return (e != null ? e : lowerEntry(x.key));            // last node was removed; look earlier
+    }
+
+    /**
+     * Returns the entry with least key greater than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> ceilingEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V>[] preds = newLevels();
+        Node<K, V>[] succs = newLevels();
+        find(key, preds, succs);
+        return firstFrom(succs[0]);
+    }
+
+    /**
+     * Returns the entry with least key strictly greater than given key (if any).
+     */
+    @Override
+    public Entry<K, V> higherEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V>[] preds = newLevels();
+        Node<K, V>[] succs = newLevels();
+        Node<K, V> x = find(key, preds, succs);
+        return firstFrom(x != null ? x.next[0].getReference() : succs[0]);
+    }
+
+    /**
+     * Returns the entry with greatest key less than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> floorEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V> x = find(key, null, null);
+        Entry<K, V> e = (x == null ? null : snapshot(x));
+        return (e != null ? e : lowerEntry(key));
+    }
+
+    /**
+     * Returns the entry with greatest key strictly less than given key (if any).
+     */
+    @Override
+    public Entry<K, V> lowerEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V>[] preds = newLevels();
+        Node<K, V>[] succs = newLevels();
+        while (true) {
+            find(key, preds, succs);
+            Node<K, V> pred = preds[0];
+            if (pred == head) return null;
+            Entry<K, V> e = snapshot(pred);
+            if (e != null) return e;
+            key = pred.key;                                    // pred was removed; look before it
+        }
+    }
+
+    // support for weakly consistent iteration of entrySet() and subMap()
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private Node<K, V> cursor;                     // node from which to seek the next entry
+        private K stop;                                // exclusive upper bound (or null for none)
+        private Entry<K, V> pending;                   // next entry to report
+
+        EntryIterator(Node<K, V> start, K stop) {
+            cursor = start;
+            this.stop = stop;
+            advance();
+        }
+
+        private void advance() {
+            pending = null;
+            while (cursor != null && pending == null) {
+                if (stop != null && compare(cursor.key, stop) >= 0) {
+                    cursor = null;                     // past the end of the range
+                    break;
+                }
+                pending = snapshot(cursor);            // null if removed
+                cursor = cursor.next[0].getReference();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pending != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (pending == null) throw new NoSuchElementException();
+            Entry<K, V> answer = pending;
+            advance();
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Returns a weakly consistent iterable collection of all key-value entries of the map.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return () -> new EntryIterator(head.next[0].getReference(), null);
+    }
+
+    /**
+     * Returns a weakly consistent iterable of entries with keys in the range from
+     * fromKey inclusive to toKey exclusive.
+     */
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
+        checkKey(fromKey);
+        checkKey(toKey);
+        return () -> {
+            Node<K, V>[] preds = newLevels();
+            Node<K, V>[] succs = newLevels();
+            find(fromKey, preds, succs);
+            return new EntryIterator(succs[0], toKey);
+        };
+    }
+}
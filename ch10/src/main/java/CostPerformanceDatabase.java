@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * Maintains a database of maximal (cost, performance) pairs.
  */
@@ -10,6 +13,23 @@ public class CostPerformanceDatabase {
      */
     public CostPerformanceDatabase() {}
 
+    /**
+     * Opens a database previously saved to the given file. The entries are read
+     * directly from the mapped file, so the returned database is read-only.
+     */
+    public static CostPerformanceDatabase open(Path file) throws IOException {
+        CostPerformanceDatabase db = new CostPerformanceDatabase();
+        db.map = new MappedSortedTableMap<>(file, MappedSortedTableMap.INTEGER, MappedSortedTableMap.INTEGER);
+        return db;
+    }
+
+    /**
+     * Saves the database to the given file, in a form that open can map.
+     */
+    public void save(Path file) throws IOException {
+        MappedSortedTableMap.write(map, file, MappedSortedTableMap.INTEGER, MappedSortedTableMap.INTEGER);
+    }
+
     /**
      * Returns the (cost, performance) entry with largest cost not exceeding c.
      * (or null if no entry exist with cost c or less).
@@ -0,0 +1,335 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Map implementation using bucketized cuckoo hashing.
+ *
+ * The table is divided into buckets of four slots. Each key may live only in
+ * its primary bucket, chosen by the seeded hash of AbstractHashMap, or in one
+ * alternate bucket, chosen by a second salted hash. A lookup therefore
+ * examines at most eight slots, whose hash codes occupy two small runs of an
+ * int array, plus a stash of normally at most STASH_SIZE entries, so it takes
+ * constant time in the worst case. An insertion into two full buckets evicts
+ * a random resident to its own alternate bucket, and so on; an entry still homeless
+ * after MAX_KICKS evictions goes to the stash, and if the stash is full the
+ * table is rebuilt with a new salt. Only keys with identical hash codes, which
+ * no salt can separate, can defeat repeated rebuilds; the stash then grows.
+ *
+ * As capacity counts slots, the inherited policy of resizing once more than
+ * half of them are used keeps evictions rare.
+ */
+public class CuckooHashMap<K, V> extends AbstractHashMap<K, V> {
+    private static final int BUCKET_SIZE = 4;     // slots per bucket
+    private static final int MAX_KICKS = 128;     // evictions attempted before using the stash
+    private static final int STASH_SIZE = 4;      // entries that may overflow the buckets
+    private static final int MAX_RESEEDS = 8;     // rebuilds tried before the stash may grow
+
+    // all of the following are initialized within createTable
+    private int[] codes;                          // hash code of the key in each slot
+    private K[] keys;                             // the key in each slot (null if empty)
+    private V[] vals;                             // the value in each slot
+    private int buckets;                          // number of buckets
+    private int salt;                             // random salt of the alternate-bucket hash
+    private MapEntry<K, V>[] stash;               // entries that found no slot
+    private int stashSize;                        // number of entries in the stash
+    private Random rand;                          // chooses salts and eviction victims
+
+    /**
+     * Creates a hash table with capacity 17 and prime factor 109345121.
+     */
+    public CuckooHashMap() {
+        super();
+    }
+
+    /**
+     * Creates a hash table with given capacity and prime factor 109345121.
+     */
+    public CuckooHashMap(int cap) {
+        super(cap);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and prime factor.
+     */
+    public CuckooHashMap(int cap, int p) {
+        super(cap, p);
+    }
+
+    /**
+     * Creates an empty table with at least capacity slots, grouped into buckets.
+     */
+    @Override
+    @SuppressWarnings({"unchecked"})
+    protected void createTable() {
+        buckets = (capacity + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        codes = new int[buckets * BUCKET_SIZE];
+        keys = (K[]) new Object[buckets * BUCKET_SIZE];    // safe cast
+        vals = (V[]) new Object[buckets * BUCKET_SIZE];    // safe cast
+        stash = (MapEntry<K, V>[]) new MapEntry[STASH_SIZE];
+        stashSize = 0;
+        if (rand == null) rand = new Random();
+        salt = rand.nextInt();
+    }
+
+    // private utilities
+
+    /** Returns the alternate bucket for a key with hash code c found in bucket b. */
+    private int alternate(int b, int c) {
+        return Math.floorMod(mix(c ^ salt) - b, buckets);   // an involution: alternate(alternate(b)) == b
+    }
+
+    /** Returns the slot in bucket b holding key k (whose hash code is c), or -1 if none. */
+    private int findInBucket(int b, K k, int c) {
+        for (int j = b * BUCKET_SIZE; j < (b + 1) * BUCKET_SIZE; j++)
+            if (keys[j] != null && codes[j] == c && keys[j].equals(k))
+                return j;
+        return -1;
+    }
+
+    /** Returns the slot holding key k in bucket b or its alternate, or -1 if none. */
+    private int findSlot(int b, K k, int c) {
+        int j = findInBucket(b, k, c);
+        if (j == -1) j = findInBucket(alternate(b, c), k, c);
+        return j;
+    }
+
+    /** Returns the index of k in the stash, or -1 if none. */
+    private int findInStash(K k) {
+        for (int j = 0; j < stashSize; j++)
+            if (stash[j].getKey().equals(k))
+                return j;
+        return -1;
+    }
+
+    /** Returns an empty slot of bucket b, or -1 if the bucket is full. */
+    private int freeSlot(int b) {
+        for (int j = b * BUCKET_SIZE; j < (b + 1) * BUCKET_SIZE; j++)
+            if (keys[j] == null)
+                return j;
+        return -1;
+    }
+
+    private void store(int j, K k, V v, int c) {
+        keys[j] = k;
+        vals[j] = v;
+        codes[j] = c;
+    }
+
+    /**
+     * Places a new entry whose primary bucket is b, evicting residents as needed.
+     * Returns null on success, or else the entry left without a slot when the
+     * stash is full (not necessarily the one being placed).
+     */
+    private MapEntry<K, V> place(int b, K k, V v, boolean growStash) {
+        int c = k.hashCode();
+        int j = freeSlot(b);
+        if (j == -1) j = freeSlot(b = alternate(b, c));
+        for (int kick = 0; j == -1 && kick < MAX_KICKS; kick++) {
+            j = b * BUCKET_SIZE + rand.nextInt(BUCKET_SIZE);   // evict a random resident
+            K k2 = keys[j];
+            V v2 = vals[j];
+            int c2 = codes[j];
+            store(j, k, v, c);
+            k = k2;
+            v = v2;
+            c = c2;
+            b = alternate(b, c);                  // the evicted entry moves to its other bucket
+            j = freeSlot(b);
+        }
+        if (j != -1)
+            store(j, k, v, c);
+        else if (stashSize < stash.length || growStash) {
+            if (stashSize == stash.length)
+                stash = Arrays.copyOf(stash, 2 * stash.length);
+            stash[stashSize++] = new MapEntry<>(k, v);
+        } else
+            return new MapEntry<>(k, v);
+        return null;
+    }
+
+    /**
+     * Rebuilds the table with new salts until every entry, and the given extra
+     * one, fits; after MAX_RESEEDS failures the stash is allowed to grow.
+     */
+    private void reseed(MapEntry<K, V> extra) {
+        ArrayList<MapEntry<K, V>> buffer = new ArrayList<>(n);
+        for (int j = 0; j < keys.length; j++)
+            if (keys[j] != null)
+                buffer.add(new MapEntry<>(keys[j], vals[j]));
+        for (int j = 0; j < stashSize; j++)
+            buffer.add(stash[j]);
+        buffer.add(extra);
+        boolean done = false;
+        for (int attempt = 0; !done; attempt++) {
+            createTable();                        // same capacity, new salt
+            done = true;
+            for (MapEntry<K, V> e : buffer)
+                if (place(hashValue(e.getKey()) / BUCKET_SIZE, e.getKey(), e.getValue(),
+                        attempt >= MAX_RESEEDS) != null) {
+                    done = false;                 // try again with another salt
+                    break;
+                }
+        }
+    }
+
+    /**
+     * Returns value associated with key k, whose hash value is h, or else null.
+     */
+    @Override
+    protected V bucketGet(int h, K k) {
+        int j = findSlot(h / BUCKET_SIZE, k, k.hashCode());
+        if (j != -1) return vals[j];
+        if (stashSize > 0 && (j = findInStash(k)) != -1)
+            return stash[j].getValue();
+        return null;
+    }
+
+    /**
+     * Associates key k, whose hash value is h, with value v, returning the
+     * previously associated value, if any.
+     */
+    @Override
+    protected V bucketPut(int h, K k, V v) {
+        int j = findSlot(h / BUCKET_SIZE, k, k.hashCode());
+        if (j != -1) {                            // this key has an existing entry
+            V old = vals[j];
+            vals[j] = v;
+            return old;
+        }
+        if (stashSize > 0 && (j = findInStash(k)) != -1)
+            return stash[j].setValue(v);
+        MapEntry<K, V> homeless = place(h / BUCKET_SIZE, k, v, false);
+        if (homeless != null)
+            reseed(homeless);
+        n++;
+        return null;
+    }
+
+    /**
+     * Removes entry having key k, whose hash value is h, returning the
+     * previously associated value, if found.
+     */
+    @Override
+    protected V bucketRemove(int h, K k) {
+        int j = findSlot(h / BUCKET_SIZE, k, k.hashCode());
+        V answer;
+        if (j != -1) {
+            answer = vals[j];
+            keys[j] = null;
+            vals[j] = null;
+        } else if (stashSize > 0 && (j = findInStash(k)) != -1) {
+            answer = stash[j].getValue();
+            stash[j] = stash[--stashSize];        // relocate last stashed entry to the hole
+            stash[stashSize] = null;
+        } else
+            return null;                          // nothing to remove
+        n--;
+        return answer;
+    }
+
+    /**
+     * Returns the entry stored in slot h, if any. The last slot also reports the
+     * slots that round the table up to whole buckets, and the stash.
+     */
+    @Override
+    protected Iterable<Entry<K, V>> bucketEntries(int h) {
+        if (h < capacity - 1) {
+            if (keys[h] == null) return Collections.emptyList();
+            return Collections.<Entry<K, V>>singletonList(new MapEntry<>(keys[h], vals[h]));
+        }
+        ArrayList<Entry<K, V>> answer = new ArrayList<>();
+        for (int j = h; j < keys.length; j++)
+            if (keys[j] != null)
+                answer.add(new MapEntry<>(keys[j], vals[j]));
+        for (int j = 0; j < stashSize; j++)
+            answer.add(stash[j]);
+        return answer;
+    }
+
+    @Override
+    protected AbstractHashMap<K, V> createMap(int cap, int p) {
+        return new CuckooHashMap<>(cap, p);
+    }
+
+    @Override
+    protected void adoptTable(AbstractHashMap<K, V> m) {
+        CuckooHashMap<K, V> other = (CuckooHashMap<K, V>) m;
+        codes = other.codes;
+        keys = other.keys;
+        vals = other.vals;
+        buckets = other.buckets;
+        salt = other.salt;
+        stash = other.stash;
+        stashSize = other.stashSize;
+    }
+
+    // Support for public entrySet method...
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private int j = 0;                        // next slot (then stash index, offset by keys.length)
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            while (j < keys.length && keys[j] == null)
+                j++;                              // skip empty slots
+            return j < keys.length + stashSize;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            if (j >= keys.length)
+                return stash[j++ - keys.length];
+            Entry<K, V> answer = new MapEntry<>(keys[j], vals[j]);
+            j++;
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class EntryIterable implements Iterable<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            finishRehash();                       // iterate a single, settled table
+            return new EntryIterator();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map. The
+     * iteration walks the table in place and fails fast if the map is modified.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return new EntryIterable();
+    }
+
+    /**
+     * Performs the given action on each key and value, walking the table in place.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        finishRehash();
+        int expectedModCount = modCount;
+        for (int j = 0; j < keys.length; j++)
+            if (keys[j] != null) {
+                action.accept(keys[j], vals[j]);
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            }
+        for (int j = 0; j < stashSize; j++) {
+            action.accept(stash[j].getKey(), stash[j].getValue());
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+}
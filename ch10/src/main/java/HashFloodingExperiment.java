@@ -0,0 +1,53 @@
+/**
+ * Provides an empirical test of hash-flooding resistance. Every key is built
+ * from the blocks "Aa" and "BB", which have equal String hash codes, so all keys
+ * collide no matter how the table compresses them. ChainHashMap keeps such an
+ * overfull bucket sorted and searches it in logarithmic time, while linear
+ * probing in ProbeHashMap must scan the entire cluster.
+ *
+ * The number of keys doubles each trial; the first command line argument can
+ * be used to change the number of trials, and the second the starting exponent.
+ */
+public class HashFloodingExperiment {
+
+    /** Returns the 2^m distinct strings of m blocks, each "Aa" or "BB". */
+    public static String[] collidingKeys(int m) {
+        String[] keys = new String[1 << m];
+        for (int j = 0; j < keys.length; j++) {
+            StringBuilder sb = new StringBuilder(2 * m);
+            for (int b = 0; b < m; b++)
+                sb.append(((j >> b) & 1) == 0 ? "Aa" : "BB");
+            keys[j] = sb.toString();
+        }
+        return keys;
+    }
+
+    /** Returns elapsed milliseconds to insert and then look up every key in m. */
+    private static long flood(Map<String, Integer> m, String[] keys) {
+        long startTime = System.currentTimeMillis();
+        for (int j = 0; j < keys.length; j++)
+            m.put(keys[j], j);
+        for (String k : keys)
+            if (m.get(k) == null) System.out.println("missing key " + k);
+        return System.currentTimeMillis() - startTime;
+    }
+
+    public static void main(String[] args) {
+        int trials = 5;
+        int m = 10;                               // starting with 1024 keys
+        try {
+            if (args.length > 0)
+                trials = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                m = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+
+        for (int t = 0; t < trials; t++, m++) {
+            String[] keys = collidingKeys(m);
+            long chain = flood(new ChainHashMap<>(), keys);
+            long probe = flood(new ProbeHashMap<>(), keys);
+            System.out.println(String.format("n: %9d  ChainHashMap: %8d ms  ProbeHashMap: %8d ms",
+                    keys.length, chain, probe));
+        }
+    }
+}
@@ -1,8 +1,11 @@
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 public class HashMultimap<K, V> {
     Map<K, List<V>> map = new HashMap<>();  // the primary map
@@ -29,13 +32,13 @@ public class HashMultimap<K, V> {
     }
 
     /**
-     * Returns a (possibly empty) iteration of all values associated with the key.
+     * Returns a (possibly empty) read-only view of all values associated with the key.
      */
     Iterable<V> get(K key) {
         List<V> secondary = map.get(key);
         if (secondary != null)
-            return secondary;
-        return new ArrayList<>();  // return an empty list of values
+            return Collections.unmodifiableList(secondary);  // a view, not a copy
+        return Collections.emptyList();  // return an empty list of values
     }
 
     void put(K key, V value) {
@@ -48,6 +51,20 @@ public class HashMultimap<K, V> {
         total++;
     }
 
+    /**
+     * Associates every one of the given values with the key, growing its list at most once.
+     */
+    void putAll(K key, V[] values) {
+        if (values.length == 0) return;
+        List<V> secondary = map.get(key);
+        if (secondary == null) {
+            secondary = new ArrayList<>(values.length);
+            map.put(key, secondary);
+        }
+        Collections.addAll(secondary, values);
+        total += values.length;
+    }
+
     boolean remove(K key, V value) {
         boolean wasRemoved = false;
         List<V> secondary = map.get(key);
@@ -72,13 +89,30 @@ public class HashMultimap<K, V> {
         return secondary;
     }
 
+    /**
+     * Returns an iteration of all entries, created one at a time as it proceeds.
+     */
     Iterable<Map.Entry<K, V>> entries() {
-        List<Map.Entry<K, V>> result = new ArrayList<>();
-        for (Map.Entry<K, List<V>> secondary : map.entrySet()) {
-            K key = secondary.getKey();
-            for (V value : secondary.getValue())
-                result.add(new AbstractMap.SimpleEntry<K, V>(key, value));  // 这行有点意思， AbstractMap.SimpleEntry<K, V>
-        }
-        return result;
+        return () -> new Iterator<Map.Entry<K, V>>() {
+            private Iterator<Map.Entry<K, List<V>>> primary = map.entrySet().iterator();
+            private K key;                       // key of the current secondary list
+            private Iterator<V> secondary = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!secondary.hasNext() && primary.hasNext()) {
+                    Map.Entry<K, List<V>> next = primary.next();
+                    key = next.getKey();
+                    secondary = next.getValue().iterator();
+                }
+                return secondary.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return new AbstractMap.SimpleEntry<K, V>(key, secondary.next());  // 这行有点意思， AbstractMap.SimpleEntry<K, V>
+            }
+        };
     }
 }
@@ -0,0 +1,64 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical comparison of put and get throughput for hash maps using
+ * the default MAD (multiply-add-divide) compression versus power-of-two tables
+ * indexed by bit mask. Each trial is repeated so that the later rounds reflect
+ * compiled code. The first command line argument can be used to change the
+ * number of keys, and the second the number of rounds.
+ */
+public class HashingExperiment {
+
+    /** Returns elapsed nanoseconds to put every key into m. */
+    private static long timePuts(Map<Integer, Integer> m, Integer[] keys) {
+        long start = System.nanoTime();
+        for (Integer k : keys)
+            m.put(k, k);
+        return System.nanoTime() - start;
+    }
+
+    /** Returns elapsed nanoseconds to get every key from m. */
+    private static long timeGets(Map<Integer, Integer> m, Integer[] keys) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (Integer k : keys)
+            sink += m.get(k);
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) System.out.println();          // keep the loop from being optimized away
+        return elapsed;
+    }
+
+    private static void report(String label, int n, long putNanos, long getNanos) {
+        System.out.println(String.format("%-28s put: %8.2f Mops/s   get: %8.2f Mops/s",
+                label, n * 1000.0 / putNanos, n * 1000.0 / getNanos));
+    }
+
+    public static void main(String[] args) {
+        int n = 1000000;
+        int rounds = 5;
+        try {
+            if (args.length > 0)
+                n = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                rounds = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+
+        Integer[] keys = new Integer[n];
+        Random rand = new Random(42);
+        for (int j = 0; j < n; j++)
+            keys[j] = rand.nextInt();
+
+        for (int r = 0; r < rounds; r++) {
+            System.out.println("Round " + (r + 1));
+            for (int variant = 0; variant < 6; variant++) {
+                boolean masked = (variant % 2 == 1);
+                AbstractHashMap<Integer, Integer> m = (variant < 2 ? new ProbeHashMap<>()
+                        : variant < 4 ? new RobinHoodHashMap<>() : new CuckooHashMap<>());
+                m.setMaskedHashing(masked);
+                long put = timePuts(m, keys);
+                long get = timeGets(m, keys);
+                report(m.getClass().getName() + (masked ? " (mask)" : " (MAD)"), n, put, get);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A compact multimap from keys to int values, for uses such as inverted
+ * indexes with very many postings. The values of each key are kept in an
+ * IntPostingList, which stores sorted values delta-encoded, rather than in a
+ * list of boxed Integer objects; the lookup methods return views of those
+ * lists, without copying.
+ */
+public class IntHashMultimap<K> {
+    private static final IntPostingList EMPTY = new IntPostingList();  // never modified
+
+    Map<K, IntPostingList> map = new HashMap<>();  // the primary map
+    long total = 0;  // total number of entries in the multimap
+
+    /**
+     * Constructs an empty multimap.
+     */
+    public IntHashMultimap() {
+    }
+
+    /**
+     * Returns the total number of entries in the multimap.
+     */
+    public long size() {
+        return total;
+    }
+
+    /**
+     * Returns whether the multimap is empty.
+     */
+    public boolean isEmpty() {
+        return (total == 0);
+    }
+
+    /**
+     * Returns a view of all values associated with the key (possibly none).
+     */
+    public IntPostingList get(K key) {
+        IntPostingList secondary = map.get(key);
+        return (secondary != null ? secondary : EMPTY);
+    }
+
+    /** Returns the list for the given key, creating it if necessary. */
+    private IntPostingList secondary(K key) {
+        IntPostingList secondary = map.get(key);
+        if (secondary == null) {
+            secondary = new IntPostingList();
+            map.put(key, secondary);  // begin using new list as secondary structure
+        }
+        return secondary;
+    }
+
+    public void put(K key, int value) {
+        secondary(key).add(value);
+        total++;
+    }
+
+    /**
+     * Associates every one of the given values with the key, in a single pass.
+     */
+    public void putAll(K key, int[] values) {
+        if (values.length == 0) return;
+        secondary(key).addAll(values, values.length);
+        total += values.length;
+    }
+
+    public boolean remove(K key, int value) {
+        boolean wasRemoved = false;
+        IntPostingList secondary = map.get(key);
+        if (secondary != null) {
+            wasRemoved = secondary.remove(value);
+            if (wasRemoved) {
+                total--;
+                if (secondary.isEmpty())
+                    map.remove(key);  // remove secondary structure from primary map
+            }
+        }
+        return wasRemoved;
+    }
+
+    public IntPostingList removeAll(K key) {
+        IntPostingList secondary = map.remove(key);
+        if (secondary == null) return EMPTY;
+        total -= secondary.size();
+        return secondary;
+    }
+
+    /**
+     * Returns an iterable collection of the distinct keys of the multimap.
+     */
+    public Iterable<K> keySet() {
+        return map.keySet();
+    }
+
+    /**
+     * Performs the given action on each key and a view of its values.
+     */
+    public void forEach(BiConsumer<? super K, ? super IntPostingList> action) {
+        map.forEach(action);
+    }
+
+    /**
+     * Releases unused capacity in every list, for example after bulk loading.
+     */
+    public void trimToSize() {
+        for (IntPostingList secondary : map.values())
+            secondary.trimToSize();
+    }
+}
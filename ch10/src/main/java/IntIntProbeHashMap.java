@@ -0,0 +1,290 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Map from int keys to int values using a hash table with linear probing.
+ *
+ * Keys and values are kept in parallel int arrays rather than in MapEntry
+ * objects, so the table holds no per-entry objects and the primitive methods
+ * (containsKey, getOrDefault, set, addTo, removeKey) never box. The boxed
+ * methods of the Map interface are also supported with their usual semantics.
+ *
+ * Key 0 marks an empty slot, so an entry with key 0 is stored outside the table.
+ * Removal re-homes the rest of the probe run, so no "defunct" sentinel is needed.
+ * entrySet and forEach walk the arrays in place and fail fast if the map is
+ * modified.
+ */
+public class IntIntProbeHashMap extends AbstractMap<Integer, Integer> {
+    private int n = 0;                  // number of entries in the map
+    private int capacity;               // length of the table
+    private int[] keys;                 // keys[j] == 0 denotes an empty slot
+    private int[] vals;                 // vals[j] is the value for keys[j]
+    private boolean hasZeroKey = false; // whether an entry with key 0 exists
+    private int zeroValue;              // value associated with key 0 (if any)
+    private int prime;                  // prime factor
+    private long scale, shift;          // the shift and scaling factors
+
+    /**
+     * Creates a hash table with the given capacity and prime factor.
+     */
+    public IntIntProbeHashMap(int cap, int p) {
+        prime = p;
+        capacity = cap;
+        Random rand = new Random();
+        scale = rand.nextInt(prime - 1) + 1;
+        shift = rand.nextInt(prime);
+        keys = new int[capacity];
+        vals = new int[capacity];
+    }
+
+    /**
+     * Creates a hash table with given capacity and prime factor 109345121.
+     */
+    public IntIntProbeHashMap(int cap) {
+        this(cap, 109345121);
+    }
+
+    /**
+     * Creates a hash table with capacity 17 and prime factor 109345121.
+     */
+    public IntIntProbeHashMap() {
+        this(17);
+    }
+
+    // private utilities
+    private int hashValue(int key) {
+        return (int) ((Math.abs(key * scale + shift) % prime) % capacity);
+    }
+
+    /**
+     * Returns index of the slot holding nonzero key k, or -(a+1) where a is
+     * the index of the empty slot that ends its probe run.
+     */
+    private int findSlot(int k) {
+        int j = hashValue(k);
+        while (keys[j] != 0) {
+            if (keys[j] == k) return j;              // successful match
+            j = (j + 1) % capacity;                  // keep looking (cyclically)
+        }
+        return -(j + 1);                             // search has failed
+    }
+
+    /** Stores a new nonzero key at the empty slot j, resizing if needed. */
+    private void insertAt(int j, int k, int v) {
+        keys[j] = k;
+        vals[j] = v;
+        n++;
+        modCount++;
+        if (n > capacity / 2)
+            resize(2 * capacity - 1);
+    }
+
+    /**
+     * Empties slot i and moves later members of its probe run back so that
+     * every remaining key is still reachable from its home slot.
+     */
+    private void removeAt(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) % capacity;
+            if (keys[j] == 0) break;                 // end of the probe run
+            int h = hashValue(keys[j]);
+            // keys[j] may fill the hole at i unless its home lies cyclically in (i, j]
+            boolean homeBetween = (i <= j) ? (i < h && h <= j) : (i < h || h <= j);
+            if (!homeBetween) {
+                keys[i] = keys[j];
+                vals[i] = vals[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        vals[i] = 0;
+        n--;
+        modCount++;
+    }
+
+    private void resize(int newCap) {
+        int[] oldKeys = keys;
+        int[] oldVals = vals;
+        capacity = newCap;
+        keys = new int[capacity];
+        vals = new int[capacity];
+        for (int j = 0; j < oldKeys.length; j++)
+            if (oldKeys[j] != 0) {
+                int slot = -(findSlot(oldKeys[j]) + 1);
+                keys[slot] = oldKeys[j];
+                vals[slot] = oldVals[j];
+            }
+    }
+
+    // primitive methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return n + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Returns whether the map contains an entry with the given key.
+     */
+    public boolean containsKey(int key) {
+        if (key == 0) return hasZeroKey;
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Returns the value associated with the key, or defaultValue if no such entry exists.
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0) return hasZeroKey ? zeroValue : defaultValue;
+        int j = findSlot(key);
+        if (j < 0) return defaultValue;
+        return vals[j];
+    }
+
+    /**
+     * Associates the given value with the given key, replacing a previous value (if any).
+     */
+    public void set(int key, int value) {
+        if (key == 0) {
+            if (!hasZeroKey) modCount++;
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int j = findSlot(key);
+        if (j >= 0)
+            vals[j] = value;
+        else
+            insertAt(-(j + 1), key, value);
+    }
+
+    /**
+     * Adds delta to the value associated with the key, treating a missing entry
+     * as zero, and returns the updated value.
+     */
+    public int addTo(int key, int delta) {
+        if (key == 0) {
+            if (!hasZeroKey) modCount++;
+            zeroValue = (hasZeroKey ? zeroValue : 0) + delta;
+            hasZeroKey = true;
+            return zeroValue;
+        }
+        int j = findSlot(key);
+        if (j >= 0)
+            return vals[j] += delta;
+        insertAt(-(j + 1), key, delta);
+        return delta;
+    }
+
+    /**
+     * Removes the entry with the given key (if any), returning whether it was found.
+     */
+    public boolean removeKey(int key) {
+        if (key == 0) {
+            boolean found = hasZeroKey;
+            if (found) modCount++;
+            hasZeroKey = false;
+            zeroValue = 0;
+            return found;
+        }
+        int j = findSlot(key);
+        if (j < 0) return false;
+        removeAt(j);
+        return true;
+    }
+
+    // methods of the Map interface
+
+    /**
+     * Returns the value associated with the specified key (or else null).
+     */
+    @Override
+    public Integer get(Integer key) {
+        if (!containsKey((int) key)) return null;
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Associates given value with given key, returning the previous value (or null).
+     */
+    @Override
+    public Integer put(Integer key, Integer value) {
+        Integer old = get(key);
+        set(key, value);
+        return old;
+    }
+
+    /**
+     * Removes the entry with the specified key (if any) and returns its value.
+     */
+    @Override
+    public Integer remove(Integer key) {
+        Integer old = get(key);
+        if (old != null) removeKey(key);
+        return old;
+    }
+
+    // Support for public entrySet method...
+    private class EntryIterator implements Iterator<Entry<Integer, Integer>> {
+        private int j = (hasZeroKey ? -1 : 0);    // next slot to examine; -1 denotes key 0
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            while (j >= 0 && j < capacity && keys[j] == 0)
+                j++;                              // skip empty slots
+            return j < capacity;
+        }
+
+        @Override
+        public Entry<Integer, Integer> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            if (j < 0) {
+                j++;
+                return new MapEntry<>(0, zeroValue);
+            }
+            Entry<Integer, Integer> answer = new MapEntry<>(keys[j], vals[j]);
+            j++;
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map. The
+     * iteration walks the table in place and fails fast if the map is modified.
+     */
+    @Override
+    public Iterable<Entry<Integer, Integer>> entrySet() {
+        return () -> new EntryIterator();
+    }
+
+    /**
+     * Performs the given action on each key and value, walking the table in place.
+     */
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Integer> action) {
+        int expectedModCount = modCount;
+        if (hasZeroKey) {
+            action.accept(0, zeroValue);
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+        for (int j = 0; j < capacity; j++)
+            if (keys[j] != 0) {
+                action.accept(keys[j], vals[j]);
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            }
+    }
+}
@@ -0,0 +1,232 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A growable list of int values, stored compactly for use as a posting list.
+ *
+ * While values arrive in nondecreasing order, as document numbers in an
+ * inverted index do, each is stored as the variable-length (7 bits per byte)
+ * encoding of its difference from the previous value, so small gaps take a
+ * single byte. The first value that breaks the order converts the list to a
+ * plain int array, which is kept from then on.
+ *
+ * Callers outside this class read the list through its public methods, which
+ * never copy the values; changes are made only through IntHashMultimap.
+ */
+public class IntPostingList implements Iterable<Integer> {
+    private byte[] packed = new byte[4];   // delta-encoded values, while sorted (else null)
+    private int[] plain = null;            // raw values, once unsorted
+    private int length = 0;                // bytes used in packed (or entries used in plain)
+    private int n = 0;                     // number of values
+    private int last = 0;                  // most recent value appended
+
+    IntPostingList() {
+    }
+
+    /**
+     * Returns the number of values in the list.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns whether the list is empty.
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Returns whether the values are stored delta-encoded (that is, are in nondecreasing order).
+     */
+    public boolean isPacked() {
+        return packed != null;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the stored values.
+     */
+    public int storageBytes() {
+        return (packed != null ? packed.length : 4 * plain.length);
+    }
+
+    // utilities for the packed representation
+
+    /** Ensures packed has room for extra more bytes. */
+    private void ensurePacked(int extra) {
+        if (length + extra > packed.length)
+            packed = Arrays.copyOf(packed, Math.max(length + extra, 2 * packed.length));
+    }
+
+    /** Appends the unsigned varint encoding of gap; packed must have 5 spare bytes. */
+    private void writeGap(int gap) {
+        while ((gap & ~0x7f) != 0) {
+            packed[length++] = (byte) ((gap & 0x7f) | 0x80);  // low 7 bits, more to follow
+            gap >>>= 7;
+        }
+        packed[length++] = (byte) gap;
+    }
+
+    /** Converts the list to the plain representation, leaving room for extra more values. */
+    private void unpack(int extra) {
+        int[] values = new int[Math.max(4, n + extra)];
+        PrimitiveIterator.OfInt it = intIterator();
+        for (int j = 0; j < n; j++)
+            values[j] = it.nextInt();
+        plain = values;
+        packed = null;
+        length = n;
+    }
+
+    /** Ensures plain has room for extra more values. */
+    private void ensurePlain(int extra) {
+        if (length + extra > plain.length)
+            plain = Arrays.copyOf(plain, Math.max(length + extra, 2 * plain.length));
+    }
+
+    // package-private update methods
+
+    /** Appends a value to the end of the list. */
+    void add(int value) {
+        if (packed != null && (n == 0 || value >= last)) {
+            ensurePacked(5);
+            writeGap(value - last);                    // the first gap is measured from zero
+        } else {
+            if (packed != null) unpack(1);
+            ensurePlain(1);
+            plain[length++] = value;
+        }
+        last = value;
+        n++;
+    }
+
+    /** Appends values[0..count-1] to the end of the list. */
+    void addAll(int[] values, int count) {
+        if (count == 0) return;
+        if (packed != null) {
+            boolean sorted = (n == 0 || values[0] >= last);
+            for (int j = 1; sorted && j < count; j++)
+                sorted = values[j - 1] <= values[j];
+            if (sorted) {
+                ensurePacked(5 * count);               // worst case, so the loop needs no checks
+                int prev = last;
+                for (int j = 0; j < count; j++) {
+                    writeGap(values[j] - prev);
+                    prev = values[j];
+                }
+                last = prev;
+                n += count;
+                return;
+            }
+            unpack(count);
+        }
+        ensurePlain(count);
+        System.arraycopy(values, 0, plain, length, count);
+        length += count;
+        last = values[count - 1];
+        n += count;
+    }
+
+    /** Removes the first occurrence of value, if any, and reports whether it was found. */
+    boolean remove(int value) {
+        int[] values = toArray();
+        int j = 0;
+        while (j < n && values[j] != value) j++;
+        if (j == n) return false;
+        System.arraycopy(values, j + 1, values, j, n - j - 1);
+        int count = n - 1;
+        length = n = last = 0;                         // rebuild from the remaining values
+        if (packed != null) {
+            packed = new byte[4];
+            addAll(values, count);
+        } else {
+            plain = Arrays.copyOf(values, Math.max(4, count));
+            length = n = count;
+            last = (count > 0 ? values[count - 1] : 0);
+        }
+        return true;
+    }
+
+    /** Releases any unused capacity. */
+    void trimToSize() {
+        if (packed != null)
+            packed = Arrays.copyOf(packed, length);
+        else
+            plain = Arrays.copyOf(plain, length);
+    }
+
+    // public read methods
+
+    /**
+     * Returns whether the list contains the given value.
+     */
+    public boolean contains(int value) {
+        PrimitiveIterator.OfInt it = intIterator();
+        while (it.hasNext()) {
+            int v = it.nextInt();
+            if (v == value) return true;
+            if (packed != null && v > value) return false;  // sorted, so it cannot appear later
+        }
+        return false;
+    }
+
+    /**
+     * Returns a new array holding the values of the list, in order.
+     */
+    public int[] toArray() {
+        if (plain != null) return Arrays.copyOf(plain, n);
+        int[] answer = new int[n];
+        PrimitiveIterator.OfInt it = intIterator();
+        for (int j = 0; j < n; j++)
+            answer[j] = it.nextInt();
+        return answer;
+    }
+
+    // iterators decode the stored values in place
+
+    private class IntIterator implements PrimitiveIterator.OfInt {
+        private int j = 0;                     // number of values reported so far
+        private int pos = 0;                   // next byte of packed to decode
+        private int prev = 0;                  // value most recently decoded
+
+        @Override
+        public boolean hasNext() {
+            return j < n;
+        }
+
+        @Override
+        public int nextInt() {
+            if (j == n) throw new NoSuchElementException();
+            if (packed == null) return plain[j++];
+            int gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = packed[pos++];
+                gap |= (b & 0x7f) << shift;
+                if (b >= 0) break;                     // high bit clear on the last byte
+            }
+            j++;
+            prev += gap;
+            return prev;
+        }
+    }
+
+    /**
+     * Returns an iterator of the values that decodes them without boxing.
+     */
+    public PrimitiveIterator.OfInt intIterator() {
+        return new IntIterator();
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return intIterator();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,272 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Map from long keys to object values using a hash table with linear probing.
+ *
+ * Keys live in a long array and values in a parallel Object array, so no
+ * MapEntry or boxed Long is created per entry. The primitive methods
+ * (containsKey, get, getOrDefault, set, removeKey) follow the usual Map
+ * semantics, returning null when no entry exists, without boxing the key; as
+ * with IntIntProbeHashMap, the mutators have their own names, so that a call
+ * such as put(1L, 2) is not ambiguous. Null values are not permitted.
+ *
+ * Key 0 marks an empty slot, so an entry with key 0 is stored outside the table.
+ * Removal re-homes the rest of the probe run, so no "defunct" sentinel is needed.
+ * entrySet and forEach walk the arrays in place and fail fast if the map is
+ * modified.
+ */
+public class LongObjectProbeHashMap<V> extends AbstractMap<Long, V> {
+    private int n = 0;                  // number of entries in the table
+    private int capacity;               // length of the table
+    private long[] keys;                // keys[j] == 0 denotes an empty slot
+    private Object[] vals;              // vals[j] is the value for keys[j]
+    private V zeroValue = null;         // value associated with key 0 (or null)
+    private int prime;                  // prime factor
+    private long scale, shift;          // the shift and scaling factors
+
+    /**
+     * Creates a hash table with the given capacity and prime factor.
+     */
+    public LongObjectProbeHashMap(int cap, int p) {
+        prime = p;
+        capacity = cap;
+        Random rand = new Random();
+        scale = rand.nextInt(prime - 1) + 1;
+        shift = rand.nextInt(prime);
+        keys = new long[capacity];
+        vals = new Object[capacity];
+    }
+
+    /**
+     * Creates a hash table with given capacity and prime factor 109345121.
+     */
+    public LongObjectProbeHashMap(int cap) {
+        this(cap, 109345121);
+    }
+
+    /**
+     * Creates a hash table with capacity 17 and prime factor 109345121.
+     */
+    public LongObjectProbeHashMap() {
+        this(17);
+    }
+
+    // private utilities
+    private int hashValue(long key) {
+        int h = (int) (key ^ (key >>> 32));           // same folding as Long.hashCode
+        return (int) ((Math.abs(h * scale + shift) % prime) % capacity);
+    }
+
+    /**
+     * Returns index of the slot holding nonzero key k, or -(a+1) where a is
+     * the index of the empty slot that ends its probe run.
+     */
+    private int findSlot(long k) {
+        int j = hashValue(k);
+        while (keys[j] != 0) {
+            if (keys[j] == k) return j;              // successful match
+            j = (j + 1) % capacity;                  // keep looking (cyclically)
+        }
+        return -(j + 1);                             // search has failed
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private V valueAt(int j) {
+        return (V) vals[j];                          // safe cast
+    }
+
+    /**
+     * Empties slot i and moves later members of its probe run back so that
+     * every remaining key is still reachable from its home slot.
+     */
+    private void removeAt(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) % capacity;
+            if (keys[j] == 0) break;                 // end of the probe run
+            int h = hashValue(keys[j]);
+            // keys[j] may fill the hole at i unless its home lies cyclically in (i, j]
+            boolean homeBetween = (i <= j) ? (i < h && h <= j) : (i < h || h <= j);
+            if (!homeBetween) {
+                keys[i] = keys[j];
+                vals[i] = vals[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        vals[i] = null;                              // help garbage collection
+        n--;
+        modCount++;
+    }
+
+    private void resize(int newCap) {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        capacity = newCap;
+        keys = new long[capacity];
+        vals = new Object[capacity];
+        for (int j = 0; j < oldKeys.length; j++)
+            if (oldKeys[j] != 0) {
+                int slot = -(findSlot(oldKeys[j]) + 1);
+                keys[slot] = oldKeys[j];
+                vals[slot] = oldVals[j];
+            }
+    }
+
+    // primitive methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return n + (zeroValue != null ? 1 : 0);
+    }
+
+    /**
+     * Returns whether the map contains an entry with the given key.
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null).
+     */
+    public V get(long key) {
+        if (key == 0) return zeroValue;
+        int j = findSlot(key);
+        if (j < 0) return null;
+        return valueAt(j);
+    }
+
+    /**
+     * Returns the value associated with the key, or defaultValue if no such entry exists.
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V answer = get(key);
+        return (answer != null ? answer : defaultValue);
+    }
+
+    /**
+     * Associates given value with given key, returning the previous value (or null).
+     */
+    public V set(long key, V value) {
+        if (value == null) throw new IllegalArgumentException("Null value");
+        if (key == 0) {
+            V old = zeroValue;
+            if (old == null) modCount++;
+            zeroValue = value;
+            return old;
+        }
+        int j = findSlot(key);
+        if (j >= 0) {
+            V old = valueAt(j);
+            vals[j] = value;
+            return old;
+        }
+        j = -(j + 1);
+        keys[j] = key;
+        vals[j] = value;
+        n++;
+        modCount++;
+        if (n > capacity / 2)
+            resize(2 * capacity - 1);
+        return null;
+    }
+
+    /**
+     * Removes the entry with the specified key (if any) and returns its value.
+     */
+    public V removeKey(long key) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (old != null) modCount++;
+            zeroValue = null;
+            return old;
+        }
+        int j = findSlot(key);
+        if (j < 0) return null;
+        V old = valueAt(j);
+        removeAt(j);
+        return old;
+    }
+
+    // boxed methods of the Map interface
+
+    @Override
+    public V get(Long key) {
+        return get((long) key);
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return set((long) key, value);
+    }
+
+    @Override
+    public V remove(Long key) {
+        return removeKey((long) key);
+    }
+
+    // Support for public entrySet method...
+    private class EntryIterator implements Iterator<Entry<Long, V>> {
+        private int j = (zeroValue != null ? -1 : 0);   // next slot to examine; -1 denotes key 0
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            while (j >= 0 && j < capacity && keys[j] == 0)
+                j++;                              // skip empty slots
+            return j < capacity;
+        }
+
+        @Override
+        public Entry<Long, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            if (j < 0) {
+                j++;
+                return new MapEntry<>(0L, zeroValue);
+            }
+            Entry<Long, V> answer = new MapEntry<>(keys[j], valueAt(j));
+            j++;
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map. The
+     * iteration walks the table in place and fails fast if the map is modified.
+     */
+    @Override
+    public Iterable<Entry<Long, V>> entrySet() {
+        return () -> new EntryIterator();
+    }
+
+    /**
+     * Performs the given action on each key and value, walking the table in place.
+     */
+    @Override
+    public void forEach(BiConsumer<? super Long, ? super V> action) {
+        int expectedModCount = modCount;
+        if (zeroValue != null) {
+            action.accept(0L, zeroValue);
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+        for (int j = 0; j < capacity; j++)
+            if (keys[j] != 0) {
+                action.accept(keys[j], valueAt(j));
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            }
+    }
+}
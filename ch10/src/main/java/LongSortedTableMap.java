@@ -0,0 +1,314 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Sorted map from long keys to object values, kept in a primitive key array and
+ * a parallel value array. Searches compare primitive keys directly, with no
+ * MapEntry, boxed key or Comparator call per probe; the binary search loop has
+ * no data-dependent exit. Sorted input can be loaded in linear time with putAll.
+ *
+ * The primitive methods follow the same semantics as the boxed SortedMap
+ * methods, which are also supported; entries are created on demand. The
+ * primitive mutators are named set and removeKey, as in IntIntProbeHashMap,
+ * rather than overloading put and remove, so that a call such as put(3, 4)
+ * is not ambiguous.
+ */
+public class LongSortedTableMap<V> extends AbstractSortedMap<Long, V> {
+    private long[] keys = new long[16];       // keys[0..n-1] in increasing order
+    private Object[] vals = new Object[16];   // vals[j] is the value for keys[j]
+    private int n = 0;                        // number of entries
+
+    /**
+     * Constructs an initially empty map.
+     */
+    public LongSortedTableMap() {
+        super();
+    }
+
+    // private utilities
+    @SuppressWarnings({"unchecked"})
+    private V valueAt(int j) {
+        return (V) vals[j];                    // safe cast
+    }
+
+    /**
+     * Returns the smallest index storing a key greater than or equal to k (or n, if none).
+     */
+    private int findIndex(long key) {
+        if (n == 0) return 0;
+        int base = 0, len = n;
+        while (len > 1) {
+            int half = len >>> 1;
+            base = (keys[base + half] < key ? base + half : base);  // compiles to a conditional move
+            len -= half;
+        }
+        return base + (keys[base] < key ? 1 : 0);
+    }
+
+    /** Returns true if index j stores key k. */
+    private boolean matches(int j, long key) {
+        return j < n && keys[j] == key;
+    }
+
+    /** Ensures capacity for at least the given number of entries. */
+    private void ensureCapacity(int cap) {
+        if (cap > keys.length) {
+            int newCap = Math.max(cap, 2 * keys.length);
+            long[] newKeys = new long[newCap];
+            Object[] newVals = new Object[newCap];
+            System.arraycopy(keys, 0, newKeys, 0, n);
+            System.arraycopy(vals, 0, newVals, 0, n);
+            keys = newKeys;
+            vals = newVals;
+        }
+    }
+
+    /** Returns a new entry for index j, or else null if j is out of range. */
+    private Entry<Long, V> safeEntry(int j) {
+        if (j < 0 || j >= n) return null;
+        return new MapEntry<>(keys[j], valueAt(j));
+    }
+
+    // primitive methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns whether the map contains an entry with the given key.
+     */
+    public boolean containsKey(long key) {
+        return matches(findIndex(key), key);
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null).
+     */
+    public V get(long key) {
+        int j = findIndex(key);
+        if (!matches(j, key)) return null;     // no match
+        return valueAt(j);
+    }
+
+    /**
+     * Associates the given value with the given key, returning any overridden value.
+     */
+    public V set(long key, V value) {
+        int j = findIndex(key);
+        if (matches(j, key)) {                 // match exists
+            V old = valueAt(j);
+            vals[j] = value;
+            return old;
+        }
+        ensureCapacity(n + 1);
+        System.arraycopy(keys, j, keys, j + 1, n - j);   // open a gap at index j
+        System.arraycopy(vals, j, vals, j + 1, n - j);
+        keys[j] = key;
+        vals[j] = value;
+        n++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes the entry having the given key (if any) and returns its associated value.
+     */
+    public V removeKey(long key) {
+        int j = findIndex(key);
+        if (!matches(j, key)) return null;     // no match
+        V old = valueAt(j);
+        System.arraycopy(keys, j + 1, keys, j, n - j - 1);  // close the gap
+        System.arraycopy(vals, j + 1, vals, j, n - j - 1);
+        n--;
+        vals[n] = null;                        // help garbage collection
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Adds the given entries, whose keys must be in strictly increasing order,
+     * by merging them with the current contents in O(n + m) time. Values of the
+     * new entries replace those of existing entries with equal keys.
+     *
+     * @throws IllegalArgumentException if the arrays differ in length or the keys
+     *                                  are not strictly increasing
+     */
+    public void putAll(long[] newKeys, V[] newValues) throws IllegalArgumentException {
+        if (newKeys.length != newValues.length)
+            throw new IllegalArgumentException("Keys and values differ in length");
+        int m = newKeys.length;
+        for (int j = 1; j < m; j++)
+            if (newKeys[j - 1] >= newKeys[j])
+                throw new IllegalArgumentException("Keys are not in increasing order");
+        long[] mergedKeys = new long[Math.max(16, n + m)];
+        Object[] mergedVals = new Object[mergedKeys.length];
+        int i = 0, j = 0, k = 0;
+        while (i < n || j < m) {
+            if (j == m || (i < n && keys[i] < newKeys[j])) {   // take next existing entry
+                mergedKeys[k] = keys[i];
+                mergedVals[k++] = vals[i++];
+            } else {                           // take next new entry, dropping an equal old one
+                if (i < n && keys[i] == newKeys[j]) i++;
+                mergedKeys[k] = newKeys[j];
+                mergedVals[k++] = newValues[j++];
+            }
+        }
+        keys = mergedKeys;
+        vals = mergedVals;
+        n = k;
+        modCount++;
+    }
+
+    /**
+     * Returns the entry with least key greater than or equal to given key (if any).
+     */
+    public Entry<Long, V> ceilingEntry(long key) {
+        return safeEntry(findIndex(key));
+    }
+
+    /**
+     * Returns the entry with greatest key less than or equal to given key (if any).
+     */
+    public Entry<Long, V> floorEntry(long key) {
+        int j = findIndex(key);
+        if (!matches(j, key))
+            j--;                               // look one earlier (unless we had found a perfect match)
+        return safeEntry(j);
+    }
+
+    /**
+     * Returns the entry with greatest key strictly less than given key (if any).
+     */
+    public Entry<Long, V> lowerEntry(long key) {
+        return safeEntry(findIndex(key) - 1);  // go strictly before the ceiling entry
+    }
+
+    /**
+     * Returns the entry with least key strictly greater than given key (if any).
+     */
+    public Entry<Long, V> higherEntry(long key) {
+        int j = findIndex(key);
+        if (matches(j, key))
+            j++;                               // go past exact match
+        return safeEntry(j);
+    }
+
+    // boxed methods of the SortedMap interface
+
+    @Override
+    public V get(Long key) {
+        return get((long) key);
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return set((long) key, value);
+    }
+
+    @Override
+    public V remove(Long key) {
+        return removeKey((long) key);
+    }
+
+    @Override
+    public Entry<Long, V> firstEntry() {
+        return safeEntry(0);
+    }
+
+    @Override
+    public Entry<Long, V> lastEntry() {
+        return safeEntry(n - 1);
+    }
+
+    @Override
+    public Entry<Long, V> ceilingEntry(Long key) {
+        return ceilingEntry((long) key);
+    }
+
+    @Override
+    public Entry<Long, V> floorEntry(Long key) {
+        return floorEntry((long) key);
+    }
+
+    @Override
+    public Entry<Long, V> lowerEntry(Long key) {
+        return lowerEntry((long) key);
+    }
+
+    @Override
+    public Entry<Long, V> higherEntry(Long key) {
+        return higherEntry((long) key);
+    }
+
+    // support for live iterators for entrySet() and subMap() follow
+    private class EntryIterator implements Iterator<Entry<Long, V>> {
+        private int j;                         // index of next entry to report
+        private int stop;                      // index of first entry not to report
+        private int expectedModCount = modCount;
+
+        EntryIterator(int startIndex, int stopIndex) {
+            j = startIndex;
+            stop = stopIndex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return j < stop;
+        }
+
+        @Override
+        public Entry<Long, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            Entry<Long, V> answer = new MapEntry<>(keys[j], valueAt(j));
+            j++;
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map.
+     */
+    @Override
+    public Iterable<Entry<Long, V>> entrySet() {
+        return () -> new EntryIterator(0, n);
+    }
+
+    /**
+     * Returns an iterable of entries with keys in the range from fromKey inclusive
+     * to toKey exclusive.
+     */
+    public Iterable<Entry<Long, V>> subMap(long fromKey, long toKey) {
+        return () -> new EntryIterator(findIndex(fromKey), Math.max(findIndex(fromKey), findIndex(toKey)));
+    }
+
+    @Override
+    public Iterable<Entry<Long, V>> subMap(Long fromKey, Long toKey) {
+        return subMap((long) fromKey, (long) toKey);
+    }
+
+    /**
+     * Performs the given action on each key and value, in increasing order of keys,
+     * without creating entries.
+     */
+    @Override
+    public void forEach(BiConsumer<? super Long, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int j = 0; j < n; j++) {
+            action.accept(keys[j], valueAt(j));
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.function.BiConsumer;
+
 public interface Map<K,V> {
     int size();
 
@@ -14,4 +16,6 @@ public interface Map<K,V> {
     Iterable<V> values();
 
     Iterable<Entry<K, V>> entrySet();
+
+    void forEach(BiConsumer<? super K, ? super V> action);
 }
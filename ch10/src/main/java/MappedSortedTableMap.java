@@ -0,0 +1,367 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only sorted map backed by a memory-mapped sorted-string-table (SSTable) file.
+ *
+ * The file is written once, with the static write method, from the entries of
+ * any sorted map. Opening it maps the file and reads only the fixed-size header,
+ * so startup takes constant time; searches decode just the keys they compare,
+ * and the operating system's page cache is shared by every process mapping the
+ * same file.
+ *
+ * File format (all integers big-endian):
+ * <pre>
+ *   header:  int MAGIC, int n, int interval, long indexOffset
+ *   data:    n entries in increasing key order, each
+ *            int keyLength, key bytes, int valueLength, value bytes
+ *   index:   long offset of entry j, for every j that is a multiple of interval
+ * </pre>
+ * A search binary searches the sparse index and then scans at most interval
+ * entries of one block.
+ */
+public class MappedSortedTableMap<K, V> extends AbstractSortedMap<K, V> {
+    private static final int MAGIC = 0x53535431;        // "SST1"
+    private static final int HEADER_SIZE = 20;           // bytes preceding the first entry
+    public static final int DEFAULT_INTERVAL = 16;       // entries per index block
+
+    /**
+     * Converts keys or values to and from the bytes stored in the file.
+     */
+    public interface Codec<T> {
+        /** Returns the serialized form of item. */
+        byte[] encode(T item);
+
+        /** Returns the item serialized in buf[offset..offset+length-1]. */
+        T decode(ByteBuffer buf, int offset, int length);
+    }
+
+    /** Codec for Integer items, stored in four bytes. */
+    public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+        public byte[] encode(Integer item) {
+            return ByteBuffer.allocate(4).putInt(item).array();
+        }
+
+        public Integer decode(ByteBuffer buf, int offset, int length) {
+            return buf.getInt(offset);
+        }
+    };
+
+    /** Codec for Long items, stored in eight bytes. */
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        public byte[] encode(Long item) {
+            return ByteBuffer.allocate(8).putLong(item).array();
+        }
+
+        public Long decode(ByteBuffer buf, int offset, int length) {
+            return buf.getLong(offset);
+        }
+    };
+
+    /** Codec for String items, stored in UTF-8. */
+    public static final Codec<String> STRING = new Codec<String>() {
+        public byte[] encode(String item) {
+            return item.getBytes(StandardCharsets.UTF_8);
+        }
+
+        public String decode(ByteBuffer buf, int offset, int length) {
+            byte[] bytes = new byte[length];
+            buf.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private final ByteBuffer buf;          // the mapped file, read only with absolute gets
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final int n;                   // number of entries
+    private final int interval;            // entries per index block
+    private final int indexOffset;         // position of the sparse index
+
+    /**
+     * Opens the given SSTable file, ordering keys by their natural ordering.
+     *
+     * @throws IOException if the file cannot be mapped or is not an SSTable
+     */
+    public MappedSortedTableMap(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        this(file, keyCodec, valueCodec, new DefaultComparator<K>());
+    }
+
+    /**
+     * Opens the given SSTable file, which must have been written in the order of comp.
+     *
+     * @throws IOException if the file cannot be mapped or is not an SSTable
+     */
+    public MappedSortedTableMap(Path file, Codec<K> keyCodec, Codec<V> valueCodec, Comparator<K> comp)
+            throws IOException {
+        super(comp);
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("SSTable files are limited to 2 GB");
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());  // stays valid after close
+        }
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+            throw new IOException("Not an SSTable file: " + file);
+        n = buf.getInt(4);
+        interval = buf.getInt(8);
+        indexOffset = (int) buf.getLong(12);
+    }
+
+    /**
+     * Writes the entries of map, in its key order, to the given file as an SSTable.
+     */
+    public static <K, V> void write(SortedMap<K, V> map, Path file, Codec<K> keyCodec,
+                                    Codec<V> valueCodec) throws IOException {
+        write(map, file, keyCodec, valueCodec, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Writes the entries of map to the given file, indexing every interval-th entry.
+     *
+     * @throws IllegalArgumentException if interval is not positive
+     */
+    public static <K, V> void write(SortedMap<K, V> map, Path file, Codec<K> keyCodec,
+                                    Codec<V> valueCodec, int interval) throws IOException {
+        if (interval <= 0) throw new IllegalArgumentException("Index interval must be positive");
+        long[] index = new long[(map.size() + interval - 1) / interval];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(map.size());
+            out.writeInt(interval);
+            out.writeLong(0);                                // index offset, patched below
+            long offset = HEADER_SIZE;
+            int j = 0;
+            for (Entry<K, V> e : map.entrySet()) {
+                if (j % interval == 0) index[j / interval] = offset;
+                byte[] key = keyCodec.encode(e.getKey());
+                byte[] value = valueCodec.encode(e.getValue());
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(value.length);
+                out.write(value);
+                offset += 8 + key.length + value.length;
+                j++;
+            }
+            for (long x : index)
+                out.writeLong(x);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            long indexOffset = channel.size() - 8L * index.length;
+            channel.write(ByteBuffer.allocate(8).putLong(0, indexOffset), 12);
+        }
+    }
+
+    // private utilities for reading the mapped region
+
+    /** Returns the key of the entry at the given file offset. */
+    private K keyAt(int offset) {
+        return keyCodec.decode(buf, offset + 4, buf.getInt(offset));
+    }
+
+    /** Returns the value of the entry at the given file offset. */
+    private V valueAt(int offset) {
+        int valueOffset = offset + 4 + buf.getInt(offset);
+        return valueCodec.decode(buf, valueOffset + 4, buf.getInt(valueOffset));
+    }
+
+    /** Returns the file offset of the entry following the one at the given offset. */
+    private int skip(int offset) {
+        int valueOffset = offset + 4 + buf.getInt(offset);
+        return valueOffset + 4 + buf.getInt(valueOffset);
+    }
+
+    /** Returns the file offset of the first entry of block b. */
+    private int blockOffset(int b) {
+        return (int) buf.getLong(indexOffset + 8 * b);
+    }
+
+    /** Returns the file offset of entry j (0 <= j < n). */
+    private int offsetOf(int j) {
+        int offset = blockOffset(j / interval);
+        for (int r = j % interval; r > 0; r--)
+            offset = skip(offset);
+        return offset;
+    }
+
+    /**
+     * Returns the smallest index storing a key greater than or equal to k (or n, if none).
+     */
+    private int findIndex(K key) {
+        int low = 0, high = (n + interval - 1) / interval - 1;
+        while (low <= high) {                          // find last block starting at or before key
+            int mid = (low + high) / 2;
+            if (compare(keyAt(blockOffset(mid)), key) <= 0)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        if (high < 0) return 0;                        // key precedes every entry
+        int j = high * interval;
+        int offset = blockOffset(high);
+        while (j < n && compare(keyAt(offset), key) < 0) {  // scan within the block
+            offset = skip(offset);
+            j++;
+        }
+        return j;
+    }
+
+    /** Returns a new entry for index j, or else null if j is out of range. */
+    private Entry<K, V> safeEntry(int j) {
+        if (j < 0 || j >= n) return null;
+        int offset = offsetOf(j);
+        return new MapEntry<>(keyAt(offset), valueAt(offset));
+    }
+
+    // public methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null).
+     */
+    @Override
+    public V get(K key) {
+        int j = findIndex(key);
+        if (j == n) return null;
+        int offset = offsetOf(j);
+        if (compare(keyAt(offset), key) != 0) return null;  // no match
+        return valueAt(offset);
+    }
+
+    /**
+     * Unsupported, since the map is read-only.
+     */
+    @Override
+    public V put(K key, V value) {
+        throw new UnsupportedOperationException("SSTable maps are read-only");
+    }
+
+    /**
+     * Unsupported, since the map is read-only.
+     */
+    @Override
+    public V remove(K key) {
+        throw new UnsupportedOperationException("SSTable maps are read-only");
+    }
+
+    /**
+     * Returns the entry having the least key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> firstEntry() {
+        return safeEntry(0);
+    }
+
+    /**
+     * Returns the entry having the greatest key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> lastEntry() {
+        return safeEntry(n - 1);
+    }
+
+    /**
+     * Returns the entry with least key greater than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return safeEntry(findIndex(key));
+    }
+
+    /**
+     * Returns the entry with greatest key less than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        int j = findIndex(key);
+        if (j == n || compare(key, keyAt(offsetOf(j))) != 0)
+            j--;                                       // look one earlier (unless we had found a perfect match)
+        return safeEntry(j);
+    }
+
+    /**
+     * Returns the entry with greatest key strictly less than given key (if any).
+     */
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return safeEntry(findIndex(key) - 1);          // go strictly before the ceiling entry
+    }
+
+    /**
+     * Returns the entry with least key strictly greater than given key (if any).
+     */
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        int j = findIndex(key);
+        if (j < n && compare(key, keyAt(offsetOf(j))) == 0)
+            j++;                                       // go past exact match
+        return safeEntry(j);
+    }
+
+    // support for sequential scans of the mapped entries
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private int j;                                 // index of next entry to report
+        private int offset;                            // file offset of entry j
+        private K stop;                                // exclusive upper bound (or null for none)
+
+        EntryIterator(int startIndex, K stop) {
+            j = startIndex;
+            offset = (j < n ? offsetOf(j) : 0);
+            this.stop = stop;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return j < n && (stop == null || compare(keyAt(offset), stop) < 0);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Entry<K, V> answer = new MapEntry<>(keyAt(offset), valueAt(offset));
+            offset = skip(offset);
+            j++;
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return () -> new EntryIterator(0, null);
+    }
+
+    /**
+     * Returns an iterable of entries with keys in the range from fromKey inclusive
+     * to toKey exclusive.
+     */
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) {
+        return () -> new EntryIterator(findIndex(fromKey), toKey);
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Provides an empirical comparison of the heap retained by an inverted index
+ * built with IntHashMultimap (a delta-encoded posting list per key) versus
+ * HashMultimap (a list of boxed values per key), and of the time to scan every posting.
+ *
+ * Documents are numbered in increasing order and each contains a random
+ * selection of terms, so every posting list is sorted with small gaps. The
+ * first command line argument sets the number of documents, and the second
+ * the number of distinct terms.
+ */
+public class MultimapExperiment {
+    private static final int TERMS_PER_DOCUMENT = 20;
+
+    /** Returns the number of bytes currently in use on the heap, after requesting collection. */
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int j = 0; j < 3; j++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    public static void main(String[] args) {
+        int documents = 500000;
+        int terms = 10000;
+        try {
+            if (args.length > 0)
+                documents = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                terms = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+        String[] vocabulary = new String[terms];
+        for (int t = 0; t < terms; t++)
+            vocabulary[t] = "term" + t;
+        double millions = (double) documents * TERMS_PER_DOCUMENT / 1000000;
+
+        long before = usedHeap();
+        long startTime = System.currentTimeMillis();
+        IntHashMultimap<String> compact = new IntHashMultimap<>();
+        Random rand = new Random(12345);
+        for (int d = 0; d < documents; d++)
+            for (int j = 0; j < TERMS_PER_DOCUMENT; j++)
+                compact.put(vocabulary[rand.nextInt(terms)], d);
+        compact.trimToSize();
+        long elapsed = System.currentTimeMillis() - startTime;
+        long bytes = usedHeap() - before;
+        startTime = System.currentTimeMillis();
+        long check = 0;
+        for (String term : vocabulary) {
+            PrimitiveIterator.OfInt it = compact.get(term).intIterator();
+            while (it.hasNext())
+                check += it.nextInt();
+        }
+        System.out.println(String.format("IntHashMultimap<String>:      build %6d ms  scan %5d ms  %8.1f MB per million postings",
+                elapsed, System.currentTimeMillis() - startTime, bytes / millions / (1 << 20)));
+        compact = null;                                    // release before the next measurement
+
+        before = usedHeap();
+        startTime = System.currentTimeMillis();
+        HashMultimap<String, Integer> boxed = new HashMultimap<>();
+        rand = new Random(12345);                          // the same postings again
+        for (int d = 0; d < documents; d++)
+            for (int j = 0; j < TERMS_PER_DOCUMENT; j++)
+                boxed.put(vocabulary[rand.nextInt(terms)], d);
+        elapsed = System.currentTimeMillis() - startTime;
+        bytes = usedHeap() - before;
+        startTime = System.currentTimeMillis();
+        long sum = 0;
+        for (String term : vocabulary)
+            for (int d : boxed.get(term))
+                sum += d;
+        System.out.println(String.format("HashMultimap<String,Integer>: build %6d ms  scan %5d ms  %8.1f MB per million postings",
+                elapsed, System.currentTimeMillis() - startTime, bytes / millions / (1 << 20)));
+        if (check != sum) System.out.println("posting lists differ");
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A program that counts words in a file, printing the most frequent, in the
+ * manner of WordCount but designed for throughput.
+ *
+ * The file is divided into chunks whose boundaries are moved forward to fall
+ * between words. A fork-join pool counts the chunks in parallel: each leaf task
+ * memory-maps its chunk, scans the bytes for runs of ASCII letters (the same
+ * words WordCount finds), and counts them in its own ByteSliceCountMap without
+ * creating any String. Partial maps are merged as the tasks join.
+ *
+ * Usage: java ParallelWordCount file [k]
+ */
+public class ParallelWordCount {
+    private static final int CHUNK_SIZE = 1 << 24;    // nominal bytes per leaf task
+
+    /** Returns whether b is an ASCII letter. */
+    private static boolean isLetter(byte b) {
+        int c = b | 0x20;                             // fold to lowercase
+        return c >= 'a' && c <= 'z';
+    }
+
+    /** Returns chunk boundaries, each advanced so that no word straddles two chunks. */
+    private static long[] boundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ArrayList<Long> cuts = new ArrayList<>();
+        cuts.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        long pos = CHUNK_SIZE;
+        while (pos < size) {
+            boolean inWord = true;
+            while (inWord && pos < size) {            // skip to the end of any word in progress
+                probe.clear();
+                int got = channel.read(probe, pos);
+                for (int j = 0; j < got && inWord; j++, pos++)
+                    inWord = isLetter(probe.get(j));
+                if (!inWord) pos--;                   // pos now indexes the first nonletter
+            }
+            cuts.add(Math.min(pos, size));
+            pos += CHUNK_SIZE;
+        }
+        if (cuts.get(cuts.size() - 1) != size) cuts.add(size);
+        long[] answer = new long[cuts.size()];
+        for (int j = 0; j < answer.length; j++)
+            answer[j] = cuts.get(j);
+        return answer;
+    }
+
+    /** Counts the words of chunks low..high-1 of the file. */
+    @SuppressWarnings({"serial"})
+    private static class CountTask extends RecursiveTask<ByteSliceCountMap> {
+        private final FileChannel channel;
+        private final long[] cuts;
+        private final int low, high;
+
+        CountTask(FileChannel channel, long[] cuts, int low, int high) {
+            this.channel = channel;
+            this.cuts = cuts;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected ByteSliceCountMap compute() {
+            if (high - low == 1)
+                return countChunk();
+            int mid = (low + high) / 2;
+            CountTask left = new CountTask(channel, cuts, low, mid);
+            left.fork();
+            ByteSliceCountMap right = new CountTask(channel, cuts, mid, high).compute();
+            ByteSliceCountMap answer = left.join();
+            if (answer.size() < right.size()) {       // merge the smaller map into the larger
+                right.addAll(answer);
+                return right;
+            }
+            answer.addAll(right);
+            return answer;
+        }
+
+        /** Maps chunk low and counts its words. */
+        private ByteSliceCountMap countChunk() {
+            ByteSliceCountMap counts = new ByteSliceCountMap();
+            try {
+                ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, cuts[low], cuts[high] - cuts[low]);
+                int limit = buf.limit();
+                int j = 0;
+                while (j < limit) {
+                    while (j < limit && !isLetter(buf.get(j))) j++;  // skip delimiters
+                    int start = j;
+                    while (j < limit && isLetter(buf.get(j))) j++;   // scan a word
+                    if (j > start)
+                        counts.add(buf, start, j - start, 1);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Returns the word counts of the given file, computed with the given pool.
+     */
+    public static ByteSliceCountMap count(Path file, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] cuts = boundaries(channel);
+            if (cuts.length < 2) return new ByteSliceCountMap();  // an empty file
+            return pool.invoke(new CountTask(channel, cuts, 0, cuts.length - 1));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java ParallelWordCount file [k]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        int k = (args.length > 1 ? Integer.parseInt(args[1]) : 10);
+        long startTime = System.nanoTime();
+        ByteSliceCountMap counts = count(file, ForkJoinPool.commonPool());
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        long bytes = file.toFile().length();
+        for (Entry<Long, String> e : counts.topK(k))
+            System.out.println(String.format("%12d  %s", e.getKey(), e.getValue()));
+        System.out.println(String.format("%d distinct words in %.3f s: %.3f GB/s with %d threads",
+                counts.size(), seconds, bytes / seconds / 1e9, ForkJoinPool.commonPool().getParallelism()));
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Provides an empirical comparison of the heap retained by ProbeHashMap with
+ * boxed Integer keys and values versus IntIntProbeHashMap, and of the time taken
+ * by the usual get-then-put counting idiom versus the primitive addTo method.
+ *
+ * The first command line argument can be used to change the number of entries.
+ */
+public class PrimitiveMapExperiment {
+
+    /** Returns the number of bytes currently in use on the heap, after requesting collection. */
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int j = 0; j < 3; j++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    public static void main(String[] args) {
+        int n = 1000000;
+        try {
+            if (args.length > 0)
+                n = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) { }
+        double millions = n / 1000000.0;
+
+        long before = usedHeap();
+        long startTime = System.currentTimeMillis();
+        Map<Integer, Integer> boxed = new ProbeHashMap<>();
+        for (int k = 1; k <= n; k++) {
+            Integer count = boxed.get(k);                  // WordCount-style get-then-put
+            boxed.put(k, 1 + (count == null ? 0 : count));
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+        long bytes = usedHeap() - before;
+        System.out.println(String.format("ProbeHashMap<Integer,Integer>: %6d ms  %10.1f MB per million entries",
+                elapsed, bytes / millions / (1 << 20)));
+        boxed = null;                                      // release before the next measurement
+
+        before = usedHeap();
+        startTime = System.currentTimeMillis();
+        IntIntProbeHashMap primitive = new IntIntProbeHashMap();
+        for (int k = 1; k <= n; k++)
+            primitive.addTo(k, 1);
+        elapsed = System.currentTimeMillis() - startTime;
+        bytes = usedHeap() - before;
+        System.out.println(String.format("IntIntProbeHashMap:            %6d ms  %10.1f MB per million entries",
+                elapsed, bytes / millions / (1 << 20)));
+        if (primitive.size() != n) System.out.println("unexpected size " + primitive.size());
+    }
+}
@@ -22,7 +22,11 @@
  */
 
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 /*
  * Map implementation using hash table with linear probing.
@@ -152,15 +156,81 @@ public class ProbeHashMap<K, V> extends AbstractHashMap<K, V> {
     }
 
     /**
-     * Returns an iterable collection of all key-value entries of the map.
+     * Returns the entry stored in slot h, if any.
+     */
+    @Override
+    protected Iterable<Entry<K, V>> bucketEntries(int h) {
+        if (isAvailable(h)) return Collections.emptyList();
+        return Collections.<Entry<K, V>>singletonList(table[h]);
+    }
+
+    @Override
+    protected AbstractHashMap<K, V> createMap(int cap, int p) {
+        return new ProbeHashMap<>(cap, p);
+    }
+
+    @Override
+    protected void adoptTable(AbstractHashMap<K, V> m) {
+        ProbeHashMap<K, V> other = (ProbeHashMap<K, V>) m;
+        table = other.table;
+        DEFUNCT = other.DEFUNCT;                  // the adopted table may hold its sentinel
+    }
+
+    // Support for public entrySet method...
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private int j = 0;                        // next slot to examine
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            while (j < capacity && isAvailable(j))
+                j++;                              // skip empty slots
+            return j < capacity;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            return table[j++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class EntryIterable implements Iterable<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            finishRehash();                       // iterate a single, settled table
+            return new EntryIterator();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map. The
+     * iteration walks the table in place and fails fast if the map is modified.
      *
      * @return iterable collection of the map's entries
      */
     @Override
     public Iterable<Entry<K, V>> entrySet() {
-        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        return new EntryIterable();
+    }
+
+    /**
+     * Performs the given action on each key and value, walking the table in place.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        finishRehash();
+        int expectedModCount = modCount;
         for (int h = 0; h < capacity; h++)
-            if (!isAvailable(h)) buffer.add(table[h]);
-        return buffer;
+            if (!(isAvailable(h))) {
+                action.accept(table[h].getKey(), table[h].getValue());
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            }
     }
 }
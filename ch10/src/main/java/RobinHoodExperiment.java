@@ -0,0 +1,65 @@
+import java.util.Arrays;
+
+/**
+ * Provides an empirical comparison of miss-lookup latency for ProbeHashMap
+ * (linear probing with "defunct" sentinels) versus RobinHoodHashMap (Robin Hood
+ * probing with backward-shift deletion) under a steady insert/delete workload.
+ *
+ * The map holds a sliding window of live keys: each cycle inserts a fresh key
+ * and removes the oldest one, so the size stays constant and no resize occurs.
+ * At regular checkpoints the 99th percentile latency of unsuccessful lookups is
+ * reported. The first command line argument sets the total number of cycles,
+ * the second the number of live keys, and the third the lookups per checkpoint.
+ */
+public class RobinHoodExperiment {
+
+    /** Returns the 99th percentile of the given latencies (the array is sorted). */
+    private static long p99(long[] latencies) {
+        Arrays.sort(latencies);
+        return latencies[(int) (latencies.length * 0.99)];
+    }
+
+    /** Runs the insert/delete workload against map m, printing p99 miss latency per checkpoint. */
+    public static void churn(Map<Integer, Integer> m, int cycles, int live, int samples) {
+        for (int k = 0; k < live; k++)
+            m.put(k, k);
+        long[] latencies = new long[samples];
+        int checkpoint = Math.max(1, cycles / 10);
+        long sink = 0;
+        for (int c = 0; c < cycles; c++) {
+            m.put(live + c, c);                        // newest key in
+            m.remove(c);                               // oldest key out
+            if ((c + 1) % checkpoint == 0) {
+                for (int s = 0; s < samples; s++) {
+                    int missing = -1 - s;              // negative keys are never inserted
+                    long start = System.nanoTime();
+                    if (m.get(missing) != null) sink++;
+                    latencies[s] = System.nanoTime() - start;
+                }
+                System.out.println(String.format("cycles: %10d  size: %8d  p99 miss: %10d ns",
+                        c + 1, m.size(), p99(latencies)));
+            }
+        }
+        if (sink != 0) System.out.println("unexpected hit");
+    }
+
+    public static void main(String[] args) {
+        int cycles = 1000000;
+        int live = 100000;
+        int samples = 1000;
+        try {
+            if (args.length > 0)
+                cycles = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                live = Integer.parseInt(args[1]);
+            if (args.length > 2)
+                samples = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) { }
+
+        System.out.println("Testing RobinHoodHashMap...");
+        churn(new RobinHoodHashMap<>(), cycles, live, samples);
+
+        System.out.println("Testing ProbeHashMap...");
+        churn(new ProbeHashMap<>(), cycles, live, samples);
+    }
+}
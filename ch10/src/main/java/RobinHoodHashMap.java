@@ -0,0 +1,225 @@
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Map implementation using hash table with Robin Hood linear probing.
+ *
+ * Each slot records its entry's distance from the home bucket. On insertion an
+ * entry displaces any resident that is closer to its own home ("takes from the
+ * rich"), so probe runs stay short and sorted by distance. Removal shifts the
+ * following run back by one slot instead of leaving a "defunct" sentinel, so a
+ * delete-heavy workload never accumulates tombstones.
+ */
+public class RobinHoodHashMap<K, V> extends AbstractHashMap<K, V> {
+    private MapEntry<K, V>[] table;     // a fixed array of entries (all initially null)
+    private int[] dist;                 // dist[j] is probe distance of table[j] from its home
+    private int maxProbe;               // largest probe distance of any entry placed so far
+
+    // provide same constructors as base class
+
+    /**
+     * Creates a hash table with capacity 17 and prime factor 109345121.
+     */
+    public RobinHoodHashMap() {
+        super();
+    }
+
+    /**
+     * Creates a hash table with given capacity and prime factor 109345121.
+     */
+    public RobinHoodHashMap(int cap) {
+        super(cap);
+    }
+
+    /**
+     * Creates a hash table with the given capacity and prime factor.
+     */
+    public RobinHoodHashMap(int cap, int p) {
+        super(cap, p);
+    }
+
+    /**
+     * Creates an empty table having length equal to current capacity.
+     */
+    @Override
+    @SuppressWarnings({"unchecked"})
+    protected void createTable() {
+        table = (MapEntry<K, V>[]) new MapEntry[capacity];   // safe cast
+        dist = new int[capacity];
+        maxProbe = 0;
+    }
+
+    /**
+     * Returns the largest probe distance of any entry placed since the last resize.
+     */
+    public int maxProbe() {
+        return maxProbe;
+    }
+
+    /**
+     * Searches for an entry with key equal to k (which is known to have hash
+     * value h), returning its index, or -1 if not found. The search stops at
+     * an empty slot, at a resident closer to its home than we are to ours, or
+     * once the probe distance exceeds the tracked maximum.
+     */
+    private int findSlot(int h, K k) {
+        int j = h;
+        for (int d = 0; d <= maxProbe; d++) {
+            if (table[j] == null || dist[j] < d)
+                return -1;                                // k would have been placed by now
+            if (table[j].getKey().equals(k))
+                return j;                                 // successful match
+            j = (j + 1) % capacity;                       // keep looking (cyclically)
+        }
+        return -1;                                        // no entry probes this far
+    }
+
+    /**
+     * Returns value associated with key k in bucket with hash value h.
+     * If no such entry exists, returns null.
+     */
+    @Override
+    protected V bucketGet(int h, K k) {
+        int j = findSlot(h, k);
+        if (j < 0) return null;                   // no match found
+        return table[j].getValue();
+    }
+
+    /**
+     * Associates key k with value v in bucket with hash value h, returning
+     * the previously associated value, if any.
+     */
+    @Override
+    protected V bucketPut(int h, K k, V v) {
+        int j = findSlot(h, k);
+        if (j >= 0)                               // this key has an existing entry
+            return table[j].setValue(v);
+        MapEntry<K, V> carry = new MapEntry<>(k, v);
+        int d = 0;
+        j = h;
+        while (table[j] != null) {
+            if (dist[j] < d) {                    // resident is richer; swap it out
+                MapEntry<K, V> tempEntry = table[j];
+                int tempDist = dist[j];
+                table[j] = carry;
+                dist[j] = d;
+                if (d > maxProbe) maxProbe = d;
+                carry = tempEntry;
+                d = tempDist;
+            }
+            j = (j + 1) % capacity;
+            d++;
+        }
+        table[j] = carry;
+        dist[j] = d;
+        if (d > maxProbe) maxProbe = d;
+        n++;
+        return null;
+    }
+
+    /**
+     * Removes entry having key k from bucket with hash value h, returning
+     * the previously associated value, if found. Subsequent displaced entries
+     * are shifted back one slot so that no sentinel is needed.
+     */
+    @Override
+    protected V bucketRemove(int h, K k) {
+        int j = findSlot(h, k);
+        if (j < 0) return null;                   // nothing to remove
+        V answer = table[j].getValue();
+        int next = (j + 1) % capacity;
+        while (table[next] != null && dist[next] > 0) {
+            table[j] = table[next];               // shift successor one step toward home
+            dist[j] = dist[next] - 1;
+            j = next;
+            next = (j + 1) % capacity;
+        }
+        table[j] = null;
+        dist[j] = 0;
+        n--;
+        return answer;
+    }
+
+    /**
+     * Returns the entry stored in slot h, if any.
+     */
+    @Override
+    protected Iterable<Entry<K, V>> bucketEntries(int h) {
+        if (table[h] == null) return Collections.emptyList();
+        return Collections.<Entry<K, V>>singletonList(table[h]);
+    }
+
+    @Override
+    protected AbstractHashMap<K, V> createMap(int cap, int p) {
+        return new RobinHoodHashMap<>(cap, p);
+    }
+
+    @Override
+    protected void adoptTable(AbstractHashMap<K, V> m) {
+        RobinHoodHashMap<K, V> other = (RobinHoodHashMap<K, V>) m;
+        table = other.table;
+        dist = other.dist;
+        maxProbe = other.maxProbe;
+    }
+
+    // Support for public entrySet method...
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private int j = 0;                        // next slot to examine
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            while (j < capacity && table[j] == null)
+                j++;                              // skip empty slots
+            return j < capacity;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            return table[j++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class EntryIterable implements Iterable<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            finishRehash();                       // iterate a single, settled table
+            return new EntryIterator();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map. The
+     * iteration walks the table in place and fails fast if the map is modified.
+     *
+     * @return iterable collection of the map's entries
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return new EntryIterable();
+    }
+
+    /**
+     * Performs the given action on each key and value, walking the table in place.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        finishRehash();
+        int expectedModCount = modCount;
+        for (int h = 0; h < capacity; h++)
+            if (!(table[h] == null)) {
+                action.accept(table[h].getKey(), table[h].getValue());
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            }
+    }
+}
@@ -1,5 +1,9 @@
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 public class SortedTableMap<K, V> extends AbstractSortedMap<K, V> {
     private ArrayList<MapEntry<K, V>> table = new ArrayList<>();
@@ -62,6 +66,7 @@ public class SortedTableMap<K, V> extends AbstractSortedMap<K, V> {
         if (j < size() && compare(key, table.get(j)) == 0)  // match exists
             return table.get(j).setValue(value);
         table.add(j, new MapEntry<K, V>(key, value));  // otherwise new
+        modCount++;
         return null;
     }
 
@@ -72,6 +77,7 @@ public class SortedTableMap<K, V> extends AbstractSortedMap<K, V> {
     public V remove(K key) {
         int j = findIndex(key);
         if (j == size() || compare(key, table.get(j)) != 0) return null;  // no match
+        modCount++;
         return table.remove(j).getValue();
     }
 
@@ -137,23 +143,77 @@ public class SortedTableMap<K, V> extends AbstractSortedMap<K, V> {
         return safeEntry(j);
     }
 
-    // support for snapshot iterators for entrySet() and subMap() follow
-    private Iterable<Entry<K, V>> snapshot(int startIndex, K stop) {
-        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
-        int j = startIndex;
-        while (j < table.size() && (stop == null || compare(stop, table.get(j)) > 0))
-            buffer.add(table.get(j++));
-        return buffer;
+    // support for live iterators for entrySet() and subMap() follow
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private int j;                            // index of next entry to report
+        private K stop;                           // exclusive upper bound (or null for none)
+        private int expectedModCount = modCount;
+
+        EntryIterator(int startIndex, K stop) {
+            j = startIndex;
+            this.stop = stop;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return j < table.size() && (stop == null || compare(stop, table.get(j)) > 0);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            return table.get(j++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 
+    private class EntryIterable implements Iterable<Entry<K, V>> {
+        private K start, stop;                    // range of keys (null for unbounded)
+
+        EntryIterable(K start, K stop) {
+            this.start = start;
+            this.stop = stop;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator(start == null ? 0 : findIndex(start), stop);
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map. The
+     * iteration walks the table in place and fails fast if the map is modified.
+     */
     @Override
     public Iterable<Entry<K, V>> entrySet() {
-        return snapshot(0, null);
+        return new EntryIterable(null, null);
     }
 
-
+    /**
+     * Returns an iterable of entries with keys in the range from fromKey inclusive
+     * to toKey exclusive, walking the table in place.
+     */
     @Override
     public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
-        return snapshot(findIndex(fromKey), toKey);
+        return new EntryIterable(fromKey, toKey);
+    }
+
+    /**
+     * Performs the given action on each key and value, in increasing order of keys.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int j = 0; j < table.size(); j++) {
+            MapEntry<K, V> e = table.get(j);
+            action.accept(e.getKey(), e.getValue());
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
     }
 }
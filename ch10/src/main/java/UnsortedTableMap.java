@@ -1,6 +1,8 @@
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
     /**
@@ -55,6 +57,7 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
         int j = findIndex(key);
         if (j == -1) {
             table.add(new MapEntry<>(key, value));  // add new entry
+            modCount++;
             return null;
         } else
             return table.get(j).setValue(value);  // replaced value is returned
@@ -69,14 +72,18 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
         int j = findIndex(key);
         int n = size();
         if (j == -1) return null;
-        V answer = table.get(j).getValue();  // relocate last entry to 'hole' created by removal
+        V answer = table.get(j).getValue();
+        if (j != n - 1)
+            table.set(j, table.get(n - 1));  // relocate last entry to 'hole' created by removal
         table.remove(n - 1);
+        modCount++;
         return answer;
     }
 
     // Support for public entrySet method...
     private class EntryIterator implements Iterator<Entry<K, V>> {
         private int j = 0;
+        private int expectedModCount = modCount;
 
         @Override
         public boolean hasNext() {
@@ -85,6 +92,7 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
 
         @Override
         public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
             if (j == table.size()) throw new NoSuchElementException();
             return table.get(j++);
         }
@@ -109,4 +117,17 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
     public Iterable<Entry<K, V>> entrySet() {
         return new EntryIterable();
     }
+
+    /**
+     * Performs the given action on each key and value of the map.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int j = 0; j < table.size(); j++) {
+            MapEntry<K, V> e = table.get(j);
+            action.accept(e.getKey(), e.getValue());
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
 }
@@ -121,6 +121,50 @@ public class AVLTreeMap<K, V> extends TreeMap<K, V> {
             rebalance(parent(p));
     }
 
+    /**
+     * Returns a new empty AVL tree map with the same ordering of keys.
+     */
+    @Override
+    protected TreeMap<K, V> createMap() {
+        return new AVLTreeMap<>(comparator());
+    }
+
+    /**
+     * Overrides the TreeMap hook that joins detached subtrees l and r around x.
+     * If their heights differ by more than one, x is placed (with the shorter
+     * subtree) along the inner spine of the taller subtree, at the first
+     * position whose height is at most one greater than that of the shorter
+     * subtree, and then rebalanced as after an insertion, which takes time
+     * proportional to the difference in heights.
+     */
+    @Override
+    protected Position<Entry<K, V>> joinSubtrees(Position<Entry<K, V>> l, Position<Entry<K, V>> x,
+                                                 Position<Entry<K, V>> r) {
+        int hl = height(l), hr = height(r);
+        if (Math.abs(hl - hr) <= 1) {
+            tree.link(x, l, r);
+            recomputeHeight(x);
+            return x;
+        }
+        boolean leftTaller = hl > hr;
+        Position<Entry<K, V>> top = (leftTaller ? l : r);
+        Position<Entry<K, V>> c = top;
+        int target = Math.min(hl, hr) + 1;
+        while (height(c) > target)
+            c = (leftTaller ? right(c) : left(c));    // descend the inner spine
+        Position<Entry<K, V>> p = parent(c);
+        tree.setRoot(top);                            // the taller subtree is our working tree
+        if (leftTaller)
+            tree.link(x, c, r);
+        else
+            tree.link(x, l, c);
+        recomputeHeight(x);
+        tree.setChild(p, x, !leftTaller);            // x takes the place of c
+        rebalance(p);
+        tree.recomputeUpward(x);                      // sizes above any rotations
+        return root();
+    }
+
     /**
      * Ensure that current tree structure is valid AVL (for debug use only).
      */
@@ -0,0 +1,48 @@
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+/**
+ * A summary of map entries that a TreeMap can maintain for every subtree.
+ *
+ * Each entry is lifted to a value of type A, and the summary of a sequence of
+ * entries, in key order, is the combination of their lifted values. Because
+ * combine must be associative, with identity as its identity element (that
+ * is, A must form a monoid), the summary of any key range can be assembled
+ * from O(log n) stored subtree summaries. Sums, minima, maxima and counts of
+ * matching entries are all examples; combine need not be commutative.
+ */
+public interface Augmentation<K, V, A> {
+
+    /** Returns the summary of no entries. */
+    A identity();
+
+    /** Returns the summary of the single entry with the given key and value. */
+    A lift(K key, V value);
+
+    /** Returns the summary of the entries summarized by left followed by those summarized by right. */
+    A combine(A left, A right);
+
+    /**
+     * Returns an augmentation defined by the given identity, lift function and
+     * associative combining operator.
+     */
+    static <K, V, A> Augmentation<K, V, A> of(A identity, BiFunction<? super K, ? super V, A> lift,
+                                              BinaryOperator<A> combine) {
+        return new Augmentation<K, V, A>() {
+            @Override
+            public A identity() {
+                return identity;
+            }
+
+            @Override
+            public A lift(K key, V value) {
+                return lift.apply(key, value);
+            }
+
+            @Override
+            public A combine(A left, A right) {
+                return combine.apply(left, right);
+            }
+        };
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical comparison of BPlusTreeMap and AVLTreeMap, reporting
+ * the heap retained per entry and the average latency of floorEntry for
+ * random queries, half of which fall between stored keys.
+ *
+ * The keys (and values) are boxed before either map is built and are shared
+ * by both, so the figures count only the structure of each map. The first
+ * command line argument sets the number of keys, which defaults to ten
+ * million and then needs a heap of about 4 GB (for example, java -Xmx4g),
+ * and the second the fanout of the B+ tree.
+ */
+public class BPlusTreeExperiment {
+    private static final int QUERIES = 1000000;
+
+    /** Returns the number of bytes currently in use on the heap, after requesting collection. */
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int j = 0; j < 3; j++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /** Returns the even numbers 0, 2, ..., 2n-2, boxed, in a random order. */
+    private static Integer[] shuffledKeys(int n, Random rand) {
+        Integer[] keys = new Integer[n];
+        for (int j = 0; j < n; j++)
+            keys[j] = 2 * j;
+        for (int j = n - 1; j > 0; j--) {                 // Fisher-Yates shuffle
+            int k = rand.nextInt(j + 1);
+            Integer temp = keys[j];
+            keys[j] = keys[k];
+            keys[k] = temp;
+        }
+        return keys;
+    }
+
+    /** Builds m from the keys and reports its heap per entry and floorEntry latency. */
+    private static void trial(String name, SortedMap<Integer, Integer> m, Integer[] keys, Integer[] queries) {
+        long before = usedHeap();
+        long startTime = System.currentTimeMillis();
+        for (Integer k : keys)
+            m.put(k, k);
+        long loadTime = System.currentTimeMillis() - startTime;
+        long bytes = usedHeap() - before;
+
+        long sum = 0;
+        startTime = System.nanoTime();
+        for (Integer q : queries)
+            sum += m.floorEntry(q).getKey();
+        long queryTime = System.nanoTime() - startTime;
+        if (sum == 42) System.out.println();            // keep the queries from being optimized away
+        System.out.println(String.format("%-20s load: %7d ms  heap: %6.1f bytes/entry  floorEntry: %6.0f ns",
+                name, loadTime, (double) bytes / keys.length, (double) queryTime / queries.length));
+    }
+
+    public static void main(String[] args) {
+        int n = 10000000;
+        int fanout = BPlusTreeMap.DEFAULT_FANOUT;
+        try {
+            if (args.length > 0)
+                n = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                fanout = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+        Random rand = new Random(42);
+        Integer[] keys = shuffledKeys(n, rand);
+        Integer[] queries = new Integer[QUERIES];
+        for (int j = 0; j < QUERIES; j++)
+            queries[j] = rand.nextInt(2 * n);             // never below the least key, 0
+
+        System.out.println("n: " + n);
+        trial("BPlusTreeMap(" + fanout + ")", new BPlusTreeMap<>(fanout), keys, queries);
+        trial("AVLTreeMap", new AVLTreeMap<>(), keys, queries);
+    }
+}
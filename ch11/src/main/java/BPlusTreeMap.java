@@ -0,0 +1,538 @@
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * An implementation of a sorted map using a B+ tree.
+ *
+ * Every entry is stored in a leaf, as parallel sorted arrays of keys and values,
+ * and the leaves are doubly linked in key order; internal nodes hold only
+ * separator keys and child references. A node is an array rather than a chain
+ * of binary nodes, so there are no external sentinels and a search makes about
+ * log_b(n) node visits, each a binary search of one contiguous array, where the
+ * fanout b (the most entries in a leaf and the most children of an internal
+ * node) is chosen at construction. Every node other than the root is kept at
+ * least half full, by borrowing from or merging with a sibling after removals.
+ * Iteration of entrySet and subMap walks the linked leaves sequentially.
+ */
+public class BPlusTreeMap<K, V> extends AbstractSortedMap<K, V> {
+    /** Fanout used when none is given. */
+    public static final int DEFAULT_FANOUT = 64;
+
+    //---------------- nested node classes ----------------
+    private static class Node {
+        Object[] keys;                         // keys[0..size-1] in increasing order
+        int size = 0;                          // number of keys
+    }
+
+    private static class Leaf extends Node {
+        Object[] vals;                         // vals[j] is the value for keys[j]
+        Leaf prev, next;                       // neighboring leaves in key order
+
+        Leaf(int fanout) {
+            keys = new Object[fanout + 1];     // one spare slot for overflow before a split
+            vals = new Object[fanout + 1];
+        }
+    }
+
+    private static class Internal extends Node {
+        Node[] children;                       // children[0..size]; keys[j] separates j and j+1
+
+        Internal(int fanout) {
+            keys = new Object[fanout];         // one spare slot for overflow before a split
+            children = new Node[fanout + 1];
+        }
+    }
+    //----------- end of nested node classes -----------
+
+    private final int fanout;                  // most entries of a leaf and children of an internal node
+    private final int minLeaf;                 // fewest entries of a nonroot leaf
+    private final int minInternal;             // fewest keys of a nonroot internal node
+    private Node root;
+    private Leaf first, last;                  // ends of the chain of leaves
+    private int height = 0;                    // number of internal levels above the leaves
+    private int n = 0;                         // number of entries
+
+    /**
+     * Constructs an empty map using the natural ordering of keys and the default fanout.
+     */
+    public BPlusTreeMap() {
+        this(DEFAULT_FANOUT);
+    }
+
+    /**
+     * Constructs an empty map using the natural ordering of keys and the given fanout.
+     *
+     * @throws IllegalArgumentException if fanout is less than 4
+     */
+    public BPlusTreeMap(int fanout) {
+        super();
+        if (fanout < 4) throw new IllegalArgumentException("Fanout must be at least 4");
+        this.fanout = fanout;
+        minLeaf = fanout / 2;
+        minInternal = (fanout - 1) / 2;
+        root = first = last = new Leaf(fanout);
+    }
+
+    /**
+     * Constructs an empty map using the given comparator and fanout.
+     *
+     * @throws IllegalArgumentException if fanout is less than 4
+     */
+    public BPlusTreeMap(Comparator<K> comp, int fanout) {
+        super(comp);
+        if (fanout < 4) throw new IllegalArgumentException("Fanout must be at least 4");
+        this.fanout = fanout;
+        minLeaf = fanout / 2;
+        minInternal = (fanout - 1) / 2;
+        root = first = last = new Leaf(fanout);
+    }
+
+    // private utilities
+    @SuppressWarnings({"unchecked"})
+    private K keyAt(Node x, int j) {
+        return (K) x.keys[j];                  // safe cast
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private V valueAt(Leaf x, int j) {
+        return (V) x.vals[j];                  // safe cast
+    }
+
+    /** Returns the smallest index of x storing a key greater than or equal to key (or size, if none). */
+    private int lowerBound(Node x, K key) {
+        int low = 0, high = x.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(keyAt(x, mid), key) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /** Returns the smallest index of x storing a key strictly greater than key (or size, if none). */
+    private int upperBound(Node x, K key) {
+        int low = 0, high = x.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(keyAt(x, mid), key) <= 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /** Returns the leaf in which key belongs. */
+    private Leaf findLeaf(K key) {
+        Node x = root;
+        for (int level = 0; level < height; level++) {
+            Internal in = (Internal) x;
+            x = in.children[upperBound(in, key)];
+        }
+        return (Leaf) x;
+    }
+
+    /** Returns a new entry for index j of leaf x, moving to a neighboring leaf if j is out of range. */
+    private Entry<K, V> safeEntry(Leaf x, int j) {
+        if (j < 0) {
+            x = x.prev;
+            if (x == null) return null;
+            j = x.size - 1;
+        } else if (j >= x.size) {
+            x = x.next;
+            if (x == null) return null;
+            j = 0;
+        }
+        return new MapEntry<>(keyAt(x, j), valueAt(x, j));
+    }
+
+    /** Inserts key and child into internal node x at index j (the child goes to the right of the key). */
+    private static void insertAt(Internal x, int j, Object key, Node child) {
+        System.arraycopy(x.keys, j, x.keys, j + 1, x.size - j);
+        System.arraycopy(x.children, j + 1, x.children, j + 2, x.size - j);
+        x.keys[j] = key;
+        x.children[j + 1] = child;
+        x.size++;
+    }
+
+    /** Removes key j and child j+1 from internal node x. */
+    private static void removeAt(Internal x, int j) {
+        System.arraycopy(x.keys, j + 1, x.keys, j, x.size - j - 1);
+        System.arraycopy(x.children, j + 2, x.children, j + 1, x.size - j - 1);
+        x.size--;
+        x.keys[x.size] = null;                 // help garbage collection
+        x.children[x.size + 1] = null;
+    }
+
+    /** Moves the upper half of an overfull leaf into a new leaf, returned, that follows it. */
+    private Leaf splitLeaf(Leaf x) {
+        Leaf right = new Leaf(fanout);
+        int half = x.size / 2;
+        right.size = x.size - half;
+        System.arraycopy(x.keys, half, right.keys, 0, right.size);
+        System.arraycopy(x.vals, half, right.vals, 0, right.size);
+        for (int j = half; j < x.size; j++)
+            x.keys[j] = x.vals[j] = null;
+        x.size = half;
+        right.next = x.next;                   // link the new leaf into the chain
+        right.prev = x;
+        if (x.next != null) x.next.prev = right;
+        else last = right;
+        x.next = right;
+        return right;
+    }
+
+    /** Moves the keys and children above the middle key of an overfull node into a new node, returned. */
+    private Internal splitInternal(Internal x) {
+        Internal right = new Internal(fanout);
+        int mid = x.size / 2;                  // keys[mid] moves up to the parent
+        right.size = x.size - mid - 1;
+        System.arraycopy(x.keys, mid + 1, right.keys, 0, right.size);
+        System.arraycopy(x.children, mid + 1, right.children, 0, right.size + 1);
+        for (int j = mid; j < x.size; j++) {
+            x.keys[j] = null;
+            x.children[j + 1] = null;
+        }
+        x.size = mid;
+        return right;
+    }
+
+    // public methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the fanout of the tree.
+     */
+    public int fanout() {
+        return fanout;
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null).
+     */
+    @Override
+    public V get(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Leaf x = findLeaf(key);
+        int j = lowerBound(x, key);
+        if (j == x.size || compare(keyAt(x, j), key) != 0) return null;
+        return valueAt(x, j);
+    }
+
+    /**
+     * Associates the given value with the given key, returning any overridden value.
+     */
+    @Override
+    public V put(K key, V value) throws IllegalArgumentException {
+        checkKey(key);
+        Internal[] path = new Internal[height];   // internal nodes visited
+        int[] index = new int[height];             // child taken at each of them
+        Node x = root;
+        for (int level = 0; level < height; level++) {
+            path[level] = (Internal) x;
+            index[level] = upperBound(x, key);
+            x = path[level].children[index[level]];
+        }
+        Leaf leaf = (Leaf) x;
+        int j = lowerBound(leaf, key);
+        if (j < leaf.size && compare(keyAt(leaf, j), key) == 0) {   // match exists
+            V old = valueAt(leaf, j);
+            leaf.vals[j] = value;
+            return old;
+        }
+        System.arraycopy(leaf.keys, j, leaf.keys, j + 1, leaf.size - j);   // open a gap at index j
+        System.arraycopy(leaf.vals, j, leaf.vals, j + 1, leaf.size - j);
+        leaf.keys[j] = key;
+        leaf.vals[j] = value;
+        leaf.size++;
+        n++;
+        modCount++;
+        if (leaf.size <= fanout) return null;
+        // split overfull nodes, from the leaf upward
+        Node right = splitLeaf(leaf);
+        Object separator = right.keys[0];
+        for (int level = height - 1; level >= 0; level--) {
+            Internal parent = path[level];
+            insertAt(parent, index[level], separator, right);
+            if (parent.size < fanout) return null;  // parent has room for its children
+            separator = parent.keys[parent.size / 2];
+            right = splitInternal(parent);
+        }
+        Internal newRoot = new Internal(fanout);   // the root itself split
+        newRoot.keys[0] = separator;
+        newRoot.children[0] = root;
+        newRoot.children[1] = right;
+        newRoot.size = 1;
+        root = newRoot;
+        height++;
+        return null;
+    }
+
+    /**
+     * Removes the entry having the given key (if any) and returns its associated value.
+     */
+    @Override
+    public V remove(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Internal[] path = new Internal[height];
+        int[] index = new int[height];
+        Node x = root;
+        for (int level = 0; level < height; level++) {
+            path[level] = (Internal) x;
+            index[level] = upperBound(x, key);
+            x = path[level].children[index[level]];
+        }
+        Leaf leaf = (Leaf) x;
+        int j = lowerBound(leaf, key);
+        if (j == leaf.size || compare(keyAt(leaf, j), key) != 0) return null;   // no match
+        V old = valueAt(leaf, j);
+        System.arraycopy(leaf.keys, j + 1, leaf.keys, j, leaf.size - j - 1);   // close the gap
+        System.arraycopy(leaf.vals, j + 1, leaf.vals, j, leaf.size - j - 1);
+        leaf.size--;
+        leaf.keys[leaf.size] = leaf.vals[leaf.size] = null;
+        n--;
+        modCount++;
+        // repair underfull nodes, from the leaf upward
+        x = leaf;
+        for (int level = height - 1; level >= 0; level--) {
+            int min = (x instanceof Leaf ? minLeaf : minInternal);
+            if (x.size >= min) break;
+            Internal parent = path[level];
+            int i = index[level];
+            if (i > 0 && parent.children[i - 1].size > min)
+                borrowFromLeft(parent, i);
+            else if (i < parent.size && parent.children[i + 1].size > min)
+                borrowFromRight(parent, i);
+            else if (i > 0)
+                merge(parent, i - 1);              // merge x into its left sibling
+            else
+                merge(parent, i);                  // merge its right sibling into x
+            x = parent;
+        }
+        if (height > 0 && root.size == 0) {        // the root has a single child
+            root = ((Internal) root).children[0];
+            height--;
+        }
+        return old;
+    }
+
+    /** Moves the last entry (or key) of child i-1 of parent into child i. */
+    private void borrowFromLeft(Internal parent, int i) {
+        Node left = parent.children[i - 1], x = parent.children[i];
+        System.arraycopy(x.keys, 0, x.keys, 1, x.size);
+        if (x instanceof Leaf) {
+            Leaf l = (Leaf) left, r = (Leaf) x;
+            System.arraycopy(r.vals, 0, r.vals, 1, r.size);
+            r.keys[0] = l.keys[l.size - 1];
+            r.vals[0] = l.vals[l.size - 1];
+            l.vals[l.size - 1] = null;
+            parent.keys[i - 1] = r.keys[0];
+        } else {
+            Internal l = (Internal) left, r = (Internal) x;
+            System.arraycopy(r.children, 0, r.children, 1, r.size + 1);
+            r.keys[0] = parent.keys[i - 1];    // separator rotates down
+            r.children[0] = l.children[l.size];
+            l.children[l.size] = null;
+            parent.keys[i - 1] = l.keys[l.size - 1];
+        }
+        left.keys[left.size - 1] = null;
+        left.size--;
+        x.size++;
+    }
+
+    /** Moves the first entry (or key) of child i+1 of parent into child i. */
+    private void borrowFromRight(Internal parent, int i) {
+        Node x = parent.children[i], right = parent.children[i + 1];
+        if (x instanceof Leaf) {
+            Leaf l = (Leaf) x, r = (Leaf) right;
+            l.keys[l.size] = r.keys[0];
+            l.vals[l.size] = r.vals[0];
+            System.arraycopy(r.vals, 1, r.vals, 0, r.size - 1);
+            r.vals[r.size - 1] = null;
+            System.arraycopy(r.keys, 1, r.keys, 0, r.size - 1);
+            parent.keys[i] = r.keys[0];
+        } else {
+            Internal l = (Internal) x, r = (Internal) right;
+            l.keys[l.size] = parent.keys[i];   // separator rotates down
+            l.children[l.size + 1] = r.children[0];
+            parent.keys[i] = r.keys[0];
+            System.arraycopy(r.keys, 1, r.keys, 0, r.size - 1);
+            System.arraycopy(r.children, 1, r.children, 0, r.size);
+            r.children[r.size] = null;
+        }
+        right.keys[right.size - 1] = null;
+        right.size--;
+        x.size++;
+    }
+
+    /** Merges child i+1 of parent into child i, removing their separator from parent. */
+    private void merge(Internal parent, int i) {
+        Node left = parent.children[i], right = parent.children[i + 1];
+        if (left instanceof Leaf) {
+            Leaf l = (Leaf) left, r = (Leaf) right;
+            System.arraycopy(r.keys, 0, l.keys, l.size, r.size);
+            System.arraycopy(r.vals, 0, l.vals, l.size, r.size);
+            l.size += r.size;
+            l.next = r.next;                   // unlink r from the chain
+            if (r.next != null) r.next.prev = l;
+            else last = l;
+        } else {
+            Internal l = (Internal) left, r = (Internal) right;
+            l.keys[l.size] = parent.keys[i];   // separator comes down between them
+            System.arraycopy(r.keys, 0, l.keys, l.size + 1, r.size);
+            System.arraycopy(r.children, 0, l.children, l.size + 1, r.size + 1);
+            l.size += r.size + 1;
+        }
+        removeAt(parent, i);
+    }
+
+    /**
+     * Returns the entry having the least key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> firstEntry() {
+        return (n == 0 ? null : safeEntry(first, 0));
+    }
+
+    /**
+     * Returns the entry having the greatest key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> lastEntry() {
+        return (n == 0 ? null : safeEntry(last, last.size - 1));
+    }
+
+    /**
+     * Returns the entry with least key greater than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> ceilingEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Leaf x = findLeaf(key);
+        return safeEntry(x, lowerBound(x, key));
+    }
+
+    /**
+     * Returns the entry with greatest key less than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> floorEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Leaf x = findLeaf(key);
+        return safeEntry(x, upperBound(x, key) - 1);
+    }
+
+    /**
+     * Returns the entry with greatest key strictly less than given key (if any).
+     */
+    @Override
+    public Entry<K, V> lowerEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Leaf x = findLeaf(key);
+        return safeEntry(x, lowerBound(x, key) - 1);
+    }
+
+    /**
+     * Returns the entry with least key strictly greater than given key (if any).
+     */
+    @Override
+    public Entry<K, V> higherEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Leaf x = findLeaf(key);
+        return safeEntry(x, upperBound(x, key));
+    }
+
+    // support for live iterators for entrySet() and subMap() follow
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private Leaf leaf;                     // leaf of next entry to report
+        private int j;                         // index of next entry within leaf
+        private K stop;                        // exclusive upper bound (or null for none)
+        private int expectedModCount = modCount;
+
+        EntryIterator(Leaf leaf, int j, K stop) {
+            this.leaf = leaf;
+            this.j = j;
+            this.stop = stop;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (j == leaf.size && leaf.next != null) {
+                leaf = leaf.next;              // move along the chain of leaves
+                j = 0;
+            }
+            return j < leaf.size && (stop == null || compare(keyAt(leaf, j), stop) < 0);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            Entry<K, V> answer = new MapEntry<>(keyAt(leaf, j), valueAt(leaf, j));
+            j++;
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class EntryIterable implements Iterable<Entry<K, V>> {
+        private K start, stop;                 // range of keys (null for unbounded)
+
+        EntryIterable(K start, K stop) {
+            this.start = start;
+            this.stop = stop;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            if (start == null) return new EntryIterator(first, 0, stop);
+            Leaf x = findLeaf(start);
+            return new EntryIterator(x, lowerBound(x, start), stop);
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return new EntryIterable(null, null);
+    }
+
+    /**
+     * Returns an iterable of entries with keys in the range from fromKey inclusive
+     * to toKey exclusive.
+     */
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
+        checkKey(fromKey);
+        checkKey(toKey);
+        return new EntryIterable(fromKey, toKey);
+    }
+
+    /**
+     * Performs the given action on each key and value, in increasing order of keys,
+     * without creating entries.
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (Leaf x = first; x != null; x = x.next)
+            for (int j = 0; j < x.size; j++) {
+                action.accept(keyAt(x, j), valueAt(x, j));
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            }
+    }
+}
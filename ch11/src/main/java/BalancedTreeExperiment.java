@@ -0,0 +1,61 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical comparison of insertion and deletion throughput for
+ * the balanced search trees AVLTreeMap, SplayTreeMap and RBTreeMap. Each
+ * trial inserts n distinct keys in random order and then removes them all
+ * in a different random order.
+ *
+ * The number of keys doubles each trial; the first command line argument can
+ * be used to change the number of trials, and the second the starting size.
+ */
+public class BalancedTreeExperiment {
+
+    /** Returns the keys 0 to n-1 in a random order. */
+    private static Integer[] shuffled(int n, Random rand) {
+        Integer[] keys = new Integer[n];
+        for (int j = 0; j < n; j++)
+            keys[j] = j;
+        for (int j = n - 1; j > 0; j--) {                 // Fisher-Yates shuffle
+            int k = rand.nextInt(j + 1);
+            Integer temp = keys[j];
+            keys[j] = keys[k];
+            keys[k] = temp;
+        }
+        return keys;
+    }
+
+    /** Reports insert and delete throughput, in thousands of operations per second, for m. */
+    private static void trial(String name, SortedMap<Integer, Integer> m, Integer[] ins, Integer[] del) {
+        long startTime = System.currentTimeMillis();
+        for (Integer k : ins)
+            m.put(k, k);
+        long insertTime = Math.max(1, System.currentTimeMillis() - startTime);
+        startTime = System.currentTimeMillis();
+        for (Integer k : del)
+            m.remove(k);
+        long deleteTime = Math.max(1, System.currentTimeMillis() - startTime);
+        System.out.println(String.format("n: %8d  %-12s insert: %8.1f Kops/s  delete: %8.1f Kops/s",
+                ins.length, name, (double) ins.length / insertTime, (double) del.length / deleteTime));
+    }
+
+    public static void main(String[] args) {
+        int trials = 6;
+        int n = 1 << 14;
+        try {
+            if (args.length > 0)
+                trials = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                n = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+        Random rand = new Random(42);
+
+        for (int t = 0; t < trials; t++, n *= 2) {
+            Integer[] ins = shuffled(n, rand);
+            Integer[] del = shuffled(n, rand);
+            trial("AVLTreeMap", new AVLTreeMap<>(), ins, del);
+            trial("SplayTreeMap", new SplayTreeMap<>(), ins, del);
+            trial("RBTreeMap", new RBTreeMap<>(), ins, del);
+        }
+    }
+}
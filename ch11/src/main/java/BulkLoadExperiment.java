@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Provides an empirical comparison of bulk and per-key updates of the balanced
+ * search trees AVLTreeMap and RBTreeMap: loading n sorted keys with put versus
+ * buildFromSorted, and then folding in a delta of n/100 random keys with put
+ * versus union.
+ *
+ * The first command line argument can be used to change n, and the second
+ * the size of the delta.
+ */
+public class BulkLoadExperiment {
+
+    /** Returns a map of the given kind ("AVL" or "RB"). */
+    private static TreeMap<Integer, Integer> newMap(String kind) {
+        return (kind.equals("AVL") ? new AVLTreeMap<>() : new RBTreeMap<>());
+    }
+
+    private static void trial(String kind, ArrayList<Entry<Integer, Integer>> sorted, int[] delta) {
+        System.gc();                                      // do not charge one map's garbage to the other
+        long startTime = System.currentTimeMillis();
+        TreeMap<Integer, Integer> byPut = newMap(kind);
+        for (Entry<Integer, Integer> e : sorted)
+            byPut.put(e.getKey(), e.getValue());
+        long putLoad = System.currentTimeMillis() - startTime;
+        startTime = System.currentTimeMillis();
+        for (int k : delta)
+            byPut.put(k, k);
+        long putDelta = System.currentTimeMillis() - startTime;
+        int expected = byPut.size();
+        byPut = null;
+
+        TreeMap<Integer, Integer> changes = newMap(kind);
+        for (int k : delta)
+            changes.put(k, k);
+        System.gc();
+        startTime = System.currentTimeMillis();
+        TreeMap<Integer, Integer> byBuild = newMap(kind);
+        byBuild.buildFromSorted(sorted);
+        long buildLoad = System.currentTimeMillis() - startTime;
+        startTime = System.currentTimeMillis();
+        byBuild.union(changes);
+        long unionDelta = System.currentTimeMillis() - startTime;
+
+        if (byBuild.size() != expected) System.out.println("Size mismatch!");
+        System.out.println(String.format("%-4s load  put: %6d ms  buildFromSorted: %6d ms"
+                        + "    delta  put: %5d ms  union: %5d ms",
+                kind, putLoad, buildLoad, putDelta, unionDelta));
+    }
+
+    public static void main(String[] args) {
+        int n = 1 << 21;
+        int m = -1;
+        try {
+            if (args.length > 0)
+                n = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                m = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+        if (m < 0) m = n / 100;
+        ArrayList<Entry<Integer, Integer>> sorted = new ArrayList<>(n);
+        for (int j = 0; j < n; j++)
+            sorted.add(new AbstractMap.MapEntry<>(2 * j, j));
+        Random rand = new Random(42);
+        int[] delta = new int[m];
+        for (int j = 0; j < m; j++)
+            delta[j] = rand.nextInt(2 * n);               // about half replace existing keys
+
+        System.out.println("n: " + n + "  delta: " + m);
+        for (int t = 0; t < 3; t++) {                     // early rounds warm up the JIT
+            trial("AVL", sorted, delta);
+            trial("RB", sorted, delta);
+        }
+    }
+}
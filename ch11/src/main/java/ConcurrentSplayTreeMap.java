@@ -0,0 +1,328 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe sorted map using a splay tree whose lookups do not always splay.
+ *
+ * A plain splay tree restructures itself on every get, so even readers must
+ * hold an exclusive lock. Here a get first searches without any lock, as an
+ * optimistic read of a StampedLock (a seqlock): if no update intervened, which
+ * the stamp reveals, the answer stands; otherwise the search is repeated under
+ * the shared read lock. Only one access in sampleRate then splays the key to
+ * the root, and only if the write lock is free at that moment, so frequently
+ * used keys still drift toward the root while readers never wait for a splay.
+ * Insertions and removals hold the write lock and splay as usual.
+ *
+ * The remaining queries hold the read lock, and entrySet and subMap return
+ * copies made under it, so iterations never fail. The maps passed to join and
+ * union must not be in use by other threads.
+ */
+public class ConcurrentSplayTreeMap<K, V> extends SplayTreeMap<K, V> {
+    private static final int DEFAULT_SAMPLE_RATE = 32;
+    private static final int VALIDATE_INTERVAL = 32;   // optimistic search steps between stamp checks
+
+    private final StampedLock lock = new StampedLock();
+    private final int sampleRate;             // an access splays with probability 1/sampleRate
+    private volatile int count = 0;           // number of entries, readable without the lock
+    private Thread writer;                    // thread holding the write lock (or null)
+    private boolean splayOnAccess = false;    // true only while a sampled splay holds the write lock
+
+    /**
+     * Constructs an empty map using the natural ordering of keys.
+     */
+    public ConcurrentSplayTreeMap() {
+        super();
+        sampleRate = DEFAULT_SAMPLE_RATE;
+    }
+
+    /**
+     * Constructs an empty map using the natural ordering of keys, in which one
+     * access in sampleRate (on average) splays the key accessed.
+     *
+     * @throws IllegalArgumentException if sampleRate is not positive
+     */
+    public ConcurrentSplayTreeMap(int sampleRate) throws IllegalArgumentException {
+        super();
+        if (sampleRate < 1) throw new IllegalArgumentException("Sample rate must be positive");
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Constructs an empty map using the given comparator to order keys.
+     *
+     * @param comp comparator defining the order of keys in the map
+     */
+    public ConcurrentSplayTreeMap(Comparator<K> comp) {
+        this(comp, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Constructs an empty map using the given comparator, in which one access
+     * in sampleRate (on average) splays the key accessed.
+     *
+     * @param comp       comparator defining the order of keys in the map
+     * @param sampleRate the average number of accesses per splay
+     * @throws IllegalArgumentException if sampleRate is not positive
+     */
+    public ConcurrentSplayTreeMap(Comparator<K> comp, int sampleRate) throws IllegalArgumentException {
+        super(comp);
+        if (sampleRate < 1) throw new IllegalArgumentException("Sample rate must be positive");
+        this.sampleRate = sampleRate;
+    }
+
+    /** Returns a new empty map with the same ordering of keys and sample rate. */
+    @Override
+    protected TreeMap<K, V> createMap() {
+        return new ConcurrentSplayTreeMap<>(comparator(), sampleRate);
+    }
+
+    // private utilities
+
+    /** Performs a query under the read lock (or directly, within an update by this thread). */
+    private <T> T read(Supplier<T> action) {
+        if (writer == Thread.currentThread()) return action.get();
+        long stamp = lock.readLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Performs an update under the write lock, then records the new number of entries. */
+    private <T> T write(Supplier<T> action) {
+        if (writer == Thread.currentThread()) return action.get();
+        long stamp = lock.writeLock();
+        writer = Thread.currentThread();
+        try {
+            T answer = action.get();
+            count = super.size();
+            return answer;
+        } finally {
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the position having the given key (or else the terminal leaf),
+     * splaying nothing. With a nonzero optimistic stamp the tree may change
+     * during the search, which then returns null once the stamp is found invalid.
+     */
+    private Position<Entry<K, V>> search(K key, long stamp) {
+        Position<Entry<K, V>> p = root();
+        for (int steps = 1; isInternal(p); steps++) {
+            int comp = compare(key, p.getElement());
+            if (comp == 0) break;
+            p = (comp < 0 ? left(p) : right(p));
+            if (stamp != 0 && steps % VALIDATE_INTERVAL == 0 && !lock.validate(stamp))
+                return null;                  // a concurrent update may have formed a cycle
+        }
+        return p;
+    }
+
+    /** Occasionally splays the given key, if the write lock is free. */
+    private void sampleSplay(K key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) return;
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) return;               // the tree is busy; skip this sample
+        writer = Thread.currentThread();
+        splayOnAccess = true;
+        try {
+            super.get(key);                   // searches again, then splays through rebalanceAccess
+        } finally {
+            splayOnAccess = false;
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Splays after an access only when a sampled splay requests it. */
+    @Override
+    protected void rebalanceAccess(Position<Entry<K, V>> p) {
+        if (splayOnAccess) super.rebalanceAccess(p);
+    }
+
+    // public methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the value associated with the specified key, or null if no such
+     * entry exists. The search is optimistic and takes no lock unless an update
+     * intervenes.
+     */
+    @Override
+    public V get(K key) throws IllegalArgumentException {
+        checkKey(key);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Position<Entry<K, V>> p = search(key, stamp);
+                if (p != null) {
+                    V answer = (isInternal(p) ? p.getElement().getValue() : null);
+                    if (lock.validate(stamp)) {
+                        sampleSplay(key);
+                        return answer;
+                    }
+                }
+            } catch (RuntimeException e) {
+                // a read torn by a concurrent update; a genuine error recurs below
+            }
+        }
+        V answer = read(() -> {
+            Position<Entry<K, V>> p = search(key, 0);
+            return (isInternal(p) ? p.getElement().getValue() : null);
+        });
+        sampleSplay(key);
+        return answer;
+    }
+
+    /**
+     * Associates the given value with the given key, returning any overridden value.
+     */
+    @Override
+    public V put(K key, V value) throws IllegalArgumentException {
+        return write(() -> super.put(key, value));
+    }
+
+    /**
+     * Removes the entry with the specified key, if present, and returns its value.
+     */
+    @Override
+    public V remove(K key) throws IllegalArgumentException {
+        return write(() -> super.remove(key));
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        return read(super::firstEntry);
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return read(super::lastEntry);
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) throws IllegalArgumentException {
+        return read(() -> super.ceilingEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) throws IllegalArgumentException {
+        return read(() -> super.floorEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) throws IllegalArgumentException {
+        return read(() -> super.lowerEntry(key));
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) throws IllegalArgumentException {
+        return read(() -> super.higherEntry(key));
+    }
+
+    @Override
+    public int rank(K key) throws IllegalArgumentException {
+        return read(() -> super.rank(key));
+    }
+
+    @Override
+    public Entry<K, V> select(int i) throws IndexOutOfBoundsException {
+        return read(() -> super.select(i));
+    }
+
+    @Override
+    public int countRange(K fromKey, K toKey) throws IllegalArgumentException {
+        return read(() -> Math.max(0, super.rank(toKey) - super.rank(fromKey)));
+    }
+
+    @Override
+    public void setAugmentation(Augmentation<K, V, ?> augmentation) {
+        write(() -> {
+            super.setAugmentation(augmentation);
+            return null;
+        });
+    }
+
+    @Override
+    public <A> A aggregate(Augmentation<K, V, A> augmentation, K fromKey, K toKey)
+            throws IllegalArgumentException {
+        return read(() -> super.aggregate(augmentation, fromKey, toKey));
+    }
+
+    /**
+     * Returns a copy of all key-value entries of the map, made under the read lock.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return read(() -> {
+            ArrayList<Entry<K, V>> buffer = new ArrayList<>(count);
+            for (Entry<K, V> e : super.entrySet())
+                buffer.add(e);
+            return buffer;
+        });
+    }
+
+    /**
+     * Returns a copy of the entries with keys in the range from fromKey
+     * inclusive to toKey exclusive, made under the read lock.
+     */
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
+        return read(() -> {
+            ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+            for (Entry<K, V> e : super.subMap(fromKey, toKey))
+                buffer.add(e);
+            return buffer;
+        });
+    }
+
+    // bulk operations, each holding the write lock of this map
+
+    @Override
+    public void buildFromSorted(Iterable<Entry<K, V>> entries) throws IllegalArgumentException {
+        write(() -> {
+            super.buildFromSorted(entries);
+            return null;
+        });
+    }
+
+    @Override
+    public TreeMap<K, V> split(K key) throws IllegalArgumentException {
+        return write(() -> {
+            ConcurrentSplayTreeMap<K, V> upper = (ConcurrentSplayTreeMap<K, V>) super.split(key);
+            upper.count = upper.tree.size() / 2;      // the new map was filled without its lock
+            return upper;
+        });
+    }
+
+    @Override
+    public void join(TreeMap<K, V> other) throws IllegalArgumentException {
+        write(() -> {
+            super.join(other);
+            ((ConcurrentSplayTreeMap<K, V>) other).count = 0;
+            return null;
+        });
+    }
+
+    @Override
+    public void union(TreeMap<K, V> other) throws IllegalArgumentException {
+        write(() -> {
+            super.union(other);
+            ((ConcurrentSplayTreeMap<K, V>) other).count = 0;
+            return null;
+        });
+    }
+}
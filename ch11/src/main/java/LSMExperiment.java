@@ -0,0 +1,69 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical comparison of load and scan times for SortedTableMap,
+ * AVLTreeMap and LSMSortedMap when keys arrive in random order, as they do when
+ * loading unsorted time-series points.
+ *
+ * The number of keys doubles each trial; the first command line argument can
+ * be used to change the number of trials, and the second the starting size.
+ * SortedTableMap is skipped once its quadratic load time grows too large.
+ *
+ * LSMSortedMap is tried twice: with natural ordering, where its runs carry Bloom
+ * filters, and with a reversed comparator, where they cannot. The second is
+ * also checked to find every key it was given.
+ */
+public class LSMExperiment {
+    private static final int TABLE_LIMIT = 1 << 18;  // largest size tried for SortedTableMap
+
+    /** Returns elapsed milliseconds to insert every key into m. */
+    private static long load(SortedMap<Long, Long> m, long[] keys) {
+        long startTime = System.currentTimeMillis();
+        for (long k : keys)
+            m.put(k, k);
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /** Returns elapsed milliseconds to scan every entry of m in order. */
+    private static long scan(SortedMap<Long, Long> m) {
+        long startTime = System.currentTimeMillis();
+        long sum = 0;
+        for (Entry<Long, Long> e : m.entrySet())
+            sum += e.getValue();
+        if (sum == 42) System.out.println();        // keep the scan from being optimized away
+        return System.currentTimeMillis() - startTime;
+    }
+
+    public static void main(String[] args) {
+        int trials = 6;
+        int n = 1 << 15;
+        try {
+            if (args.length > 0)
+                trials = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                n = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+
+        Random rand = new Random(12345);
+        for (int t = 0; t < trials; t++, n *= 2) {
+            long[] keys = new long[n];
+            for (int j = 0; j < n; j++)
+                keys[j] = rand.nextLong();
+            StringBuilder sb = new StringBuilder(String.format("n: %9d", n));
+            if (n <= TABLE_LIMIT) {
+                SortedMap<Long, Long> table = new SortedTableMap<>();
+                sb.append(String.format("  SortedTableMap: %6d/%4d ms", load(table, keys), scan(table)));
+            }
+            SortedMap<Long, Long> avl = new AVLTreeMap<>();
+            sb.append(String.format("  AVLTreeMap: %6d/%4d ms", load(avl, keys), scan(avl)));
+            SortedMap<Long, Long> lsm = new LSMSortedMap<>();
+            sb.append(String.format("  LSMSortedMap: %6d/%4d ms", load(lsm, keys), scan(lsm)));
+            SortedMap<Long, Long> reversed = new LSMSortedMap<>((a, b) -> Long.compare(b, a));
+            sb.append(String.format("  reversed: %6d/%4d ms", load(reversed, keys), scan(reversed)));
+            for (long k : keys)
+                if (reversed.get(k) == null)
+                    throw new IllegalStateException("Key " + k + " was lost");
+            System.out.println(sb + "  (load/scan)");
+        }
+    }
+}
@@ -0,0 +1,436 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A log-structured merge (LSM) implementation of a sorted map.
+ *
+ * Updates go to a small mutable memtable (an AVLTreeMap). Once the memtable
+ * reaches its limit it is flushed, in one sequential pass, into an immutable
+ * sorted run stored as a ColumnarSortedTableMap. Runs are kept in order from
+ * newest to oldest, and whenever the newest run grows to at least half the size
+ * of the next one the two are merged with the merge routine of merge-sort.
+ * Run sizes therefore grow geometrically, there are O(log n) runs, and each
+ * entry is rewritten O(log n) times, for O(log n) amortized cost per write.
+ *
+ * Removal writes a "tombstone" that hides older values of the key; tombstones
+ * are discarded once they are merged into the oldest run. Lookups consult the
+ * levels from newest to oldest, and range queries merge all levels.
+ *
+ * Because put and remove return the old value, every write must first look the
+ * key up. When the map uses the natural ordering of keys, each run therefore
+ * carries a BloomFilter of its keys, and a run whose filter rules the key out is
+ * skipped, so a lookup costs O(log n) expected time (a search of the memtable,
+ * one filter probe per run, and one binary search of the run that holds the key).
+ * The filters hash keys, which is safe only when keys that compare as equal have
+ * equal hash codes, so a map with any other comparator has no filters, and a
+ * lookup binary-searches every run, for O(log^2 n) time.
+ */
+public class LSMSortedMap<K, V> extends AbstractSortedMap<K, V> {
+    private static final int DEFAULT_MEMTABLE_LIMIT = 4096;
+    private static final Object TOMBSTONE = new Object();  // marks a removed key
+    private static final double FILTER_FPP = 0.01;          // false-positive rate of run filters
+
+    private final Comparator<K> keyOrder = (a, b) -> compare(a, b);
+    private final int memtableLimit;                       // entries that trigger a flush
+    private AVLTreeMap<K, Object> memtable = new AVLTreeMap<>(keyOrder);
+    private ArrayList<ColumnarSortedTableMap<K, Object>> runs = new ArrayList<>();  // newest first
+    private ArrayList<BloomFilter<K>> filters = new ArrayList<>();     // keys of each run (null if unfiltered)
+    private final boolean filtered;                        // whether runs get Bloom filters
+    private ArrayList<SortedMap<K, Object>> levels = new ArrayList<>();  // memtable, then runs
+    private int n = 0;                                     // number of live entries
+
+    /**
+     * Constructs an empty map using the natural ordering of keys.
+     */
+    public LSMSortedMap() {
+        this(new DefaultComparator<K>(), DEFAULT_MEMTABLE_LIMIT);
+    }
+
+    /**
+     * Constructs an empty map using the given comparator to order keys.
+     *
+     * @param comp comparator defining the order of keys in the map
+     */
+    public LSMSortedMap(Comparator<K> comp) {
+        this(comp, DEFAULT_MEMTABLE_LIMIT);
+    }
+
+    /**
+     * Constructs an empty map whose memtable is flushed after the given number of entries.
+     *
+     * @param comp          comparator defining the order of keys in the map
+     * @param memtableLimit number of memtable entries that triggers a flush
+     * @throws IllegalArgumentException if memtableLimit is not positive
+     */
+    public LSMSortedMap(Comparator<K> comp, int memtableLimit) throws IllegalArgumentException {
+        super(comp);
+        if (memtableLimit <= 0) throw new IllegalArgumentException("Memtable limit must be positive");
+        this.memtableLimit = memtableLimit;
+        filtered = (comp instanceof DefaultComparator);    // hashing agrees with natural ordering
+        levels.add(memtable);
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the number of immutable sorted runs currently held.
+     */
+    public int runCount() {
+        return runs.size();
+    }
+
+    // private utilities
+
+    /** Returns the newest value recorded for key (possibly TOMBSTONE), or null if none. */
+    private Object lookup(K key) {
+        Object v = memtable.get(key);
+        for (int j = 0; v == null && j < runs.size(); j++) {
+            BloomFilter<K> filter = filters.get(j);
+            if (filter == null || filter.mightContain(key))  // skip runs that cannot hold the key
+                v = runs.get(j).get(key);
+        }
+        return v;
+    }
+
+    /** Makes the first k keys and values a new newest run, with a filter of its keys if filtered. */
+    private void pushRun(K[] keys, Object[] vals, int k) {
+        if (k == 0) return;
+        ColumnarSortedTableMap<K, Object> run = new ColumnarSortedTableMap<>(keyOrder);
+        run.putAll(Arrays.copyOf(keys, k), Arrays.copyOf(vals, k));
+        BloomFilter<K> filter = null;
+        if (filtered) {
+            filter = new BloomFilter<>(k, FILTER_FPP);
+            for (int j = 0; j < k; j++)
+                filter.add(keys[j]);
+        }
+        runs.add(0, run);
+        filters.add(0, filter);
+    }
+
+    /** Converts a raw entry to a user-visible entry, or null if it is a tombstone. */
+    @SuppressWarnings({"unchecked"})
+    private Entry<K, V> live(Entry<K, Object> e) {
+        if (e == null || e.getValue() == TOMBSTONE) return null;
+        return new MapEntry<>(e.getKey(), (V) e.getValue());  // safe cast
+    }
+
+    /**
+     * Returns the greatest raw entry at or before (or strictly before) key across
+     * all levels. When several levels hold that key, the newest level's entry is
+     * returned, since ties keep the first level examined.
+     */
+    private Entry<K, Object> floorAcross(K key, boolean inclusive) {
+        Entry<K, Object> best = null;
+        for (SortedMap<K, Object> level : levels) {
+            Entry<K, Object> e = (inclusive ? level.floorEntry(key) : level.lowerEntry(key));
+            if (e != null && (best == null || compare(e.getKey(), best.getKey()) > 0))
+                best = e;
+        }
+        return best;
+    }
+
+    /** Symmetric to floorAcross, returning the least raw entry at or after key. */
+    private Entry<K, Object> ceilingAcross(K key, boolean inclusive) {
+        Entry<K, Object> best = null;
+        for (SortedMap<K, Object> level : levels) {
+            Entry<K, Object> e = (inclusive ? level.ceilingEntry(key) : level.higherEntry(key));
+            if (e != null && (best == null || compare(e.getKey(), best.getKey()) < 0))
+                best = e;
+        }
+        return best;
+    }
+
+    /** Returns the live entry at or before (or strictly before) key, skipping tombstones. */
+    private Entry<K, V> before(K key, boolean inclusive) {
+        Entry<K, Object> e = floorAcross(key, inclusive);
+        while (e != null && e.getValue() == TOMBSTONE)
+            e = floorAcross(e.getKey(), false);        // removed; keep looking earlier
+        return live(e);
+    }
+
+    /** Returns the live entry at or after (or strictly after) key, skipping tombstones. */
+    private Entry<K, V> after(K key, boolean inclusive) {
+        Entry<K, Object> e = ceilingAcross(key, inclusive);
+        while (e != null && e.getValue() == TOMBSTONE)
+            e = ceilingAcross(e.getKey(), false);      // removed; keep looking later
+        return live(e);
+    }
+
+    // public methods
+
+    /**
+     * Returns the value associated with the specified key, or null if no such entry exists.
+     */
+    @Override
+    @SuppressWarnings({"unchecked"})
+    public V get(K key) throws IllegalArgumentException {
+        checkKey(key);                                 // may throw IllegalArgumentException
+        Object v = lookup(key);
+        return (v == TOMBSTONE ? null : (V) v);        // safe cast
+    }
+
+    /**
+     * Associates the given value with the given key, returning any overridden value.
+     *
+     * @throws IllegalArgumentException if the value is null
+     */
+    @Override
+    public V put(K key, V value) throws IllegalArgumentException {
+        if (value == null) throw new IllegalArgumentException("Null values are not supported");
+        V old = get(key);                              // may throw IllegalArgumentException
+        if (old == null) {
+            n++;
+            modCount++;
+        }
+        memtable.put(key, value);
+        if (memtable.size() >= memtableLimit)
+            flush();
+        return old;
+    }
+
+    /**
+     * Removes the entry with the specified key (if any) and returns its value.
+     */
+    @Override
+    public V remove(K key) throws IllegalArgumentException {
+        V old = get(key);                              // may throw IllegalArgumentException
+        if (old == null) return null;
+        n--;
+        modCount++;
+        if (runs.isEmpty())
+            memtable.remove(key);                      // no older level can hold the key
+        else {
+            memtable.put(key, TOMBSTONE);              // hide the key in older runs
+            if (memtable.size() >= memtableLimit)
+                flush();
+        }
+        return old;
+    }
+
+    /**
+     * Writes the memtable as a new sorted run and then compacts the runs.
+     */
+    @SuppressWarnings({"unchecked"})
+    public void flush() {
+        if (memtable.isEmpty()) return;
+        K[] keys = (K[]) new Object[memtable.size()];
+        Object[] vals = new Object[keys.length];
+        int k = 0;
+        for (Entry<K, Object> e : memtable.entrySet())
+            if (!runs.isEmpty() || e.getValue() != TOMBSTONE) {  // nothing older to hide
+                keys[k] = e.getKey();
+                vals[k++] = e.getValue();
+            }
+        pushRun(keys, vals, k);
+        memtable = new AVLTreeMap<>(keyOrder);
+        compact();
+        modCount++;
+    }
+
+    /**
+     * Merges the two newest runs for as long as the newest is at least half the
+     * size of the one after it, then rebuilds the list of levels.
+     */
+    private void compact() {
+        while (runs.size() > 1 && runs.get(1).size() <= 2 * runs.get(0).size()) {
+            ColumnarSortedTableMap<K, Object> newer = runs.remove(0);
+            ColumnarSortedTableMap<K, Object> older = runs.remove(0);
+            filters.remove(0);
+            filters.remove(0);
+            merge(newer, older, runs.isEmpty());
+        }
+        levels = new ArrayList<>(runs.size() + 1);
+        levels.add(memtable);
+        levels.addAll(runs);
+    }
+
+    /** Returns the entries of run as an array, in increasing order of keys. */
+    @SuppressWarnings({"unchecked"})
+    private Entry<K, Object>[] toArray(ColumnarSortedTableMap<K, Object> run) {
+        Entry<K, Object>[] answer = (Entry<K, Object>[]) new Entry[run.size()];
+        int j = 0;
+        for (Entry<K, Object> e : run.entrySet())
+            answer[j++] = e;
+        return answer;
+    }
+
+    /**
+     * Merges two runs into a new newest run, keeping the newer value of any
+     * duplicated key. If the result is the oldest run, its tombstones are discarded.
+     */
+    @SuppressWarnings({"unchecked"})
+    private void merge(ColumnarSortedTableMap<K, Object> newer,
+                       ColumnarSortedTableMap<K, Object> older,
+                       boolean oldest) {
+        Entry<K, Object>[] s1 = toArray(older);
+        Entry<K, Object>[] s2 = toArray(newer);
+        Entry<K, Object>[] s = (Entry<K, Object>[]) new Entry[s1.length + s2.length];
+        // on equal keys, merge takes the entry of s2 first, so the newer entry leads
+        MergeSort.merge(s1, s2, s, (a, b) -> compare(a.getKey(), b.getKey()));
+        K[] keys = (K[]) new Object[s.length];
+        Object[] vals = new Object[s.length];
+        int k = 0;
+        for (int j = 0; j < s.length; j++) {
+            if (j > 0 && compare(s[j - 1].getKey(), s[j].getKey()) == 0)
+                continue;                              // an older, superseded entry
+            if (oldest && s[j].getValue() == TOMBSTONE)
+                continue;                              // nothing older left to hide
+            keys[k] = s[j].getKey();
+            vals[k++] = s[j].getValue();
+        }
+        pushRun(keys, vals, k);
+    }
+
+    /**
+     * Returns the entry having the least key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> firstEntry() {
+        Entry<K, Object> best = null;
+        for (SortedMap<K, Object> level : levels) {
+            Entry<K, Object> e = level.firstEntry();
+            if (e != null && (best == null || compare(e.getKey(), best.getKey()) < 0))
+                best = e;
+        }
+        if (best == null || best.getValue() != TOMBSTONE) return live(best);
+        return after(best.getKey(), false);
+    }
+
+    /**
+     * Returns the entry having the greatest key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> lastEntry() {
+        Entry<K, Object> best = null;
+        for (SortedMap<K, Object> level : levels) {
+            Entry<K, Object> e = level.lastEntry();
+            if (e != null && (best == null || compare(e.getKey(), best.getKey()) > 0))
+                best = e;
+        }
+        if (best == null || best.getValue() != TOMBSTONE) return live(best);
+        return before(best.getKey(), false);
+    }
+
+    /**
+     * Returns the entry with least key greater than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> ceilingEntry(K key) throws IllegalArgumentException {
+        checkKey(key);                                 // may throw IllegalArgumentException
+        return after(key, true);
+    }
+
+    /**
+     * Returns the entry with greatest key less than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> floorEntry(K key) throws IllegalArgumentException {
+        checkKey(key);                                 // may throw IllegalArgumentException
+        return before(key, true);
+    }
+
+    /**
+     * Returns the entry with greatest key strictly less than given key (if any).
+     */
+    @Override
+    public Entry<K, V> lowerEntry(K key) throws IllegalArgumentException {
+        checkKey(key);                                 // may throw IllegalArgumentException
+        return before(key, false);
+    }
+
+    /**
+     * Returns the entry with least key strictly greater than given key (if any).
+     */
+    @Override
+    public Entry<K, V> higherEntry(K key) throws IllegalArgumentException {
+        checkKey(key);                                 // may throw IllegalArgumentException
+        return after(key, false);
+    }
+
+    // support for iterating all levels in one merged, increasing order
+    private class MergeIterator implements Iterator<Entry<K, V>> {
+        private ArrayList<Iterator<Entry<K, Object>>> cursors = new ArrayList<>();
+        private ArrayList<Entry<K, Object>> heads = new ArrayList<>();  // next entry of each level
+        private Entry<K, V> pending = null;           // next live entry to report
+        private int expectedModCount = modCount;
+
+        MergeIterator(K fromKey, K toKey) {
+            for (SortedMap<K, Object> level : levels) {
+                Iterator<Entry<K, Object>> it = (fromKey == null ? level.entrySet()
+                        : level.subMap(fromKey, toKey)).iterator();
+                cursors.add(it);
+                heads.add(it.hasNext() ? it.next() : null);
+            }
+            advance();
+        }
+
+        /** Finds the next live entry, consuming every level's copy of its key. */
+        private void advance() {
+            pending = null;
+            while (pending == null) {
+                Entry<K, Object> least = null;
+                for (Entry<K, Object> e : heads)      // newest level wins ties
+                    if (e != null && (least == null || compare(e.getKey(), least.getKey()) < 0))
+                        least = e;
+                if (least == null) return;            // all levels exhausted
+                K key = least.getKey();
+                for (int j = 0; j < heads.size(); j++) {
+                    Entry<K, Object> e = heads.get(j);
+                    if (e != null && compare(e.getKey(), key) == 0) {
+                        Iterator<Entry<K, Object>> it = cursors.get(j);
+                        heads.set(j, it.hasNext() ? it.next() : null);
+                    }
+                }
+                pending = live(least);                // null if removed; keep going
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pending != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (pending == null) throw new NoSuchElementException();
+            Entry<K, V> answer = pending;
+            advance();
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return () -> new MergeIterator(null, null);
+    }
+
+    /**
+     * Returns an iterable containing all entries with keys in the range from
+     * <code>fromKey</code> inclusive to <code>toKey</code> exclusive.
+     */
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
+        checkKey(fromKey);                             // may throw IllegalArgumentException
+        checkKey(toKey);                               // may throw IllegalArgumentException
+        return () -> new MergeIterator(fromKey, toKey);
+    }
+}
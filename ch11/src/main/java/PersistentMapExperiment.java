@@ -0,0 +1,109 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provides an empirical test of consistent scans under concurrent writes. A
+ * reader repeatedly obtains a consistent view of the map and scans it in full
+ * while writer threads replace random keys. The reader takes an O(1) snapshot
+ * of a PersistentTreeMap, whereas with an AVLTreeMap guarded by a single lock
+ * it must copy every entry while holding the lock, which stalls the writers.
+ * Reported are scans per second, the average time to obtain each view, and
+ * the writers' updates per second.
+ *
+ * The first command line argument can be used to change the number of keys,
+ * the second the number of writer threads, and the third the milliseconds
+ * each configuration runs.
+ */
+public class PersistentMapExperiment {
+
+    /** A source of consistent views of a map that writers keep updating. */
+    private interface Versioned {
+        void put(Integer key, Integer value);
+
+        Iterable<Entry<Integer, Integer>> view();
+    }
+
+    private static void run(String name, Versioned map, int n, int writers, long millis)
+            throws InterruptedException {
+        AtomicBoolean done = new AtomicBoolean(false);
+        LongAdder updates = new LongAdder();
+        Thread[] workers = new Thread[writers];
+        for (int t = 0; t < writers; t++) {
+            final long seed = t;
+            workers[t] = new Thread(() -> {
+                Random rand = new Random(seed);
+                while (!done.get()) {
+                    int k = rand.nextInt(n);
+                    map.put(k, k);
+                    updates.increment();
+                }
+            });
+        }
+        for (Thread w : workers)
+            w.start();
+        long scans = 0, viewNanos = 0, sum = 0;
+        long startTime = System.currentTimeMillis();
+        while (System.currentTimeMillis() - startTime < millis) {
+            long viewStart = System.nanoTime();
+            Iterable<Entry<Integer, Integer>> view = map.view();
+            viewNanos += System.nanoTime() - viewStart;
+            for (Entry<Integer, Integer> e : view)
+                sum += e.getValue();
+            scans++;
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+        done.set(true);
+        for (Thread w : workers)
+            w.join();
+        if (sum == 42) System.out.println();            // keep the scans from being optimized away
+        System.out.println(String.format("%-26s scans: %7.1f /s  view: %9.1f us  updates: %9.0f /s",
+                name, 1000.0 * scans / elapsed, viewNanos / 1000.0 / scans, 1000.0 * updates.sum() / elapsed));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int n = 100000;
+        int writers = 2;
+        long millis = 3000;
+        try {
+            if (args.length > 0)
+                n = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                writers = Integer.parseInt(args[1]);
+            if (args.length > 2)
+                millis = Long.parseLong(args[2]);
+        } catch (NumberFormatException e) { }
+
+        for (int round = 0; round < 2; round++) {         // the first round warms up the JIT
+            PersistentTreeMap<Integer, Integer> persistent = new PersistentTreeMap<>();
+            for (int k = 0; k < n; k++)
+                persistent.put(k, k);
+            run("PersistentTreeMap", new Versioned() {
+                public void put(Integer key, Integer value) {
+                    persistent.put(key, value);
+                }
+
+                public Iterable<Entry<Integer, Integer>> view() {
+                    return persistent.snapshot().entrySet();
+                }
+            }, n, writers, millis);
+
+            AVLTreeMap<Integer, Integer> locked = new AVLTreeMap<>();
+            for (int k = 0; k < n; k++)
+                locked.put(k, k);
+            run("synchronized AVLTreeMap", new Versioned() {
+                public void put(Integer key, Integer value) {
+                    synchronized (locked) {
+                        locked.put(key, value);
+                    }
+                }
+
+                public Iterable<Entry<Integer, Integer>> view() {
+                    synchronized (locked) {
+                        return locked.entrySnapshot();
+                    }
+                }
+            }, n, writers, millis);
+        }
+    }
+}
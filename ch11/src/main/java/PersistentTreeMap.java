@@ -0,0 +1,395 @@
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A sorted map implemented as a persistent AVL tree, whose nodes are never
+ * modified once built.
+ *
+ * An update copies only the O(log n) nodes on the path from the root to the
+ * changed position (plus those involved in rotations) and shares every other
+ * node with the previous version, so each version of the map remains intact.
+ * Methods with and without return a new version and leave this one unchanged.
+ * The put and remove methods instead advance this map to a new version by
+ * compare-and-set of its root, so concurrent writers never block each other,
+ * and snapshot returns the current version in O(1) time, as an immutable map
+ * that readers can query and iterate while writers continue. Nodes serve
+ * directly as the entries that the map reports.
+ */
+public class PersistentTreeMap<K, V> extends AbstractSortedMap<K, V> {
+
+    //---------------- nested Node class ----------------
+    private static final class Node<K, V> implements Entry<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left, right;
+        final int height;                      // height of this subtree (1 for a single node)
+        final int size;                        // number of entries in this subtree
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            height = 1 + Math.max(height(left), height(right));
+            size = 1 + size(left) + size(right);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "<" + key + ", " + value + ">";
+        }
+    } //----------- end of nested Node class -----------
+
+    private final AtomicReference<Node<K, V>> root;  // current version (null if empty)
+    private final boolean frozen;                     // true for a snapshot, which rejects put and remove
+
+    /**
+     * Constructs an empty map using the natural ordering of keys.
+     */
+    public PersistentTreeMap() {
+        super();
+        root = new AtomicReference<>(null);
+        frozen = false;
+    }
+
+    /**
+     * Constructs an empty map using the given comparator to order keys.
+     */
+    public PersistentTreeMap(Comparator<K> comp) {
+        super(comp);
+        root = new AtomicReference<>(null);
+        frozen = false;
+    }
+
+    /** Constructs an immutable version with the given root. */
+    private PersistentTreeMap(Comparator<K> comp, Node<K, V> top) {
+        super(comp);
+        root = new AtomicReference<>(top);
+        frozen = true;
+    }
+
+    // utilities for immutable nodes
+
+    private static int height(Node<?, ?> x) {
+        return (x == null ? 0 : x.height);
+    }
+
+    private static int size(Node<?, ?> x) {
+        return (x == null ? 0 : x.size);
+    }
+
+    /** Returns a new node for key and value over subtrees l and r, restoring AVL balance if needed. */
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> l, Node<K, V> r) {
+        if (height(l) > height(r) + 1) {              // left side too tall
+            if (height(l.left) >= height(l.right))     // single rotation
+                return new Node<>(l.key, l.value, l.left, new Node<>(key, value, l.right, r));
+            Node<K, V> m = l.right;                    // double rotation
+            return new Node<>(m.key, m.value, new Node<>(l.key, l.value, l.left, m.left),
+                    new Node<>(key, value, m.right, r));
+        }
+        if (height(r) > height(l) + 1) {              // right side too tall
+            if (height(r.right) >= height(r.left))
+                return new Node<>(r.key, r.value, new Node<>(key, value, l, r.left), r.right);
+            Node<K, V> m = r.left;
+            return new Node<>(m.key, m.value, new Node<>(key, value, l, m.left),
+                    new Node<>(r.key, r.value, m.right, r.right));
+        }
+        return new Node<>(key, value, l, r);
+    }
+
+    /** Returns the subtree x with key mapped to value, or x itself if it already was. */
+    private Node<K, V> insert(Node<K, V> x, K key, V value) {
+        if (x == null) return new Node<>(key, value, null, null);
+        int comp = compare(key, x.key);
+        if (comp == 0)
+            return (x.value == value ? x : new Node<>(key, value, x.left, x.right));
+        if (comp < 0) {
+            Node<K, V> l = insert(x.left, key, value);
+            return (l == x.left ? x : balance(x.key, x.value, l, x.right));
+        }
+        Node<K, V> r = insert(x.right, key, value);
+        return (r == x.right ? x : balance(x.key, x.value, x.left, r));
+    }
+
+    /** Returns the subtree x without the least entry of x (which must be nonempty). */
+    private static <K, V> Node<K, V> deleteMin(Node<K, V> x) {
+        if (x.left == null) return x.right;
+        return balance(x.key, x.value, deleteMin(x.left), x.right);
+    }
+
+    /** Returns the subtree x without key, or x itself if key is absent. */
+    private Node<K, V> delete(Node<K, V> x, K key) {
+        if (x == null) return null;
+        int comp = compare(key, x.key);
+        if (comp < 0) {
+            Node<K, V> l = delete(x.left, key);
+            return (l == x.left ? x : balance(x.key, x.value, l, x.right));
+        }
+        if (comp > 0) {
+            Node<K, V> r = delete(x.right, key);
+            return (r == x.right ? x : balance(x.key, x.value, x.left, r));
+        }
+        if (x.left == null) return x.right;
+        if (x.right == null) return x.left;
+        Node<K, V> successor = x.right;               // replace x by its successor
+        while (successor.left != null)
+            successor = successor.left;
+        return balance(successor.key, successor.value, x.left, deleteMin(x.right));
+    }
+
+    /** Returns the node having the given key (or null if none). */
+    private Node<K, V> find(Node<K, V> x, K key) {
+        while (x != null) {
+            int comp = compare(key, x.key);
+            if (comp == 0) return x;
+            x = (comp < 0 ? x.left : x.right);
+        }
+        return null;
+    }
+
+    // public methods
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return size(root.get());
+    }
+
+    /**
+     * Returns an immutable map holding the current entries, in O(1) time.
+     */
+    public PersistentTreeMap<K, V> snapshot() {
+        return (frozen ? this : new PersistentTreeMap<>(comparator(), root.get()));
+    }
+
+    /**
+     * Returns an immutable version of this map in which key is associated with
+     * value, leaving this map unchanged.
+     */
+    public PersistentTreeMap<K, V> with(K key, V value) throws IllegalArgumentException {
+        checkKey(key);
+        return new PersistentTreeMap<>(comparator(), insert(root.get(), key, value));
+    }
+
+    /**
+     * Returns an immutable version of this map without an entry for key,
+     * leaving this map unchanged.
+     */
+    public PersistentTreeMap<K, V> without(K key) throws IllegalArgumentException {
+        checkKey(key);
+        return new PersistentTreeMap<>(comparator(), delete(root.get(), key));
+    }
+
+    /**
+     * Returns the value associated with the specified key (or else null).
+     */
+    @Override
+    public V get(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V> x = find(root.get(), key);
+        return (x == null ? null : x.value);
+    }
+
+    /**
+     * Associates the given value with the given key, making the result the
+     * current version, and returns any overridden value.
+     *
+     * @throws UnsupportedOperationException if this map is a snapshot
+     */
+    @Override
+    public V put(K key, V value) throws IllegalArgumentException {
+        checkKey(key);
+        if (frozen) throw new UnsupportedOperationException("Snapshots are immutable");
+        while (true) {
+            Node<K, V> old = root.get();
+            if (root.compareAndSet(old, insert(old, key, value))) {
+                Node<K, V> x = find(old, key);
+                return (x == null ? null : x.value);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry having the given key (if any), making the result the
+     * current version, and returns its associated value.
+     *
+     * @throws UnsupportedOperationException if this map is a snapshot
+     */
+    @Override
+    public V remove(K key) throws IllegalArgumentException {
+        checkKey(key);
+        if (frozen) throw new UnsupportedOperationException("Snapshots are immutable");
+        while (true) {
+            Node<K, V> old = root.get();
+            Node<K, V> x = find(old, key);
+            if (x == null) return null;
+            if (root.compareAndSet(old, delete(old, key)))
+                return x.value;
+        }
+    }
+
+    /**
+     * Returns the entry having the least key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> firstEntry() {
+        Node<K, V> x = root.get();
+        if (x == null) return null;
+        while (x.left != null)
+            x = x.left;
+        return x;
+    }
+
+    /**
+     * Returns the entry having the greatest key (or null if map is empty).
+     */
+    @Override
+    public Entry<K, V> lastEntry() {
+        Node<K, V> x = root.get();
+        if (x == null) return null;
+        while (x.right != null)
+            x = x.right;
+        return x;
+    }
+
+    /**
+     * Returns the entry with least key greater than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> ceilingEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V> best = null;
+        for (Node<K, V> x = root.get(); x != null; ) {
+            int comp = compare(key, x.key);
+            if (comp == 0) return x;
+            if (comp < 0) {
+                best = x;                              // candidate; look for a lesser one
+                x = x.left;
+            } else
+                x = x.right;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the entry with greatest key less than or equal to given key (if any).
+     */
+    @Override
+    public Entry<K, V> floorEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V> best = null;
+        for (Node<K, V> x = root.get(); x != null; ) {
+            int comp = compare(key, x.key);
+            if (comp == 0) return x;
+            if (comp > 0) {
+                best = x;                              // candidate; look for a greater one
+                x = x.right;
+            } else
+                x = x.left;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the entry with greatest key strictly less than given key (if any).
+     */
+    @Override
+    public Entry<K, V> lowerEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V> best = null;
+        for (Node<K, V> x = root.get(); x != null; )
+            if (compare(key, x.key) > 0) {
+                best = x;
+                x = x.right;
+            } else
+                x = x.left;
+        return best;
+    }
+
+    /**
+     * Returns the entry with least key strictly greater than given key (if any).
+     */
+    @Override
+    public Entry<K, V> higherEntry(K key) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V> best = null;
+        for (Node<K, V> x = root.get(); x != null; )
+            if (compare(key, x.key) < 0) {
+                best = x;
+                x = x.left;
+            } else
+                x = x.right;
+        return best;
+    }
+
+    // support for iteration of a fixed version, using a stack of pending ancestors
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private ArrayDeque<Node<K, V>> stack = new ArrayDeque<>();  // nodes yet to report, least on top
+        private K stop;                        // exclusive upper bound (or null for none)
+
+        EntryIterator(Node<K, V> top, K start, K stop) {
+            this.stop = stop;
+            for (Node<K, V> x = top; x != null; )
+                if (start == null || compare(x.key, start) >= 0) {
+                    stack.push(x);             // x is in range; its left subtree may be too
+                    x = x.left;
+                } else
+                    x = x.right;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && (stop == null || compare(stack.peek().key, stop) < 0);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node<K, V> answer = stack.pop();
+            for (Node<K, V> x = answer.right; x != null; x = x.left)
+                stack.push(x);                 // the leftmost path of the right subtree
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map. Each
+     * iteration reports the version current when it began, regardless of later
+     * updates, using O(log n) extra space.
+     */
+    @Override
+    public Iterable<Entry<K, V>> entrySet() {
+        return () -> new EntryIterator(root.get(), null, null);
+    }
+
+    /**
+     * Returns an iterable of entries with keys in the range from fromKey inclusive
+     * to toKey exclusive, of the version current when each iteration begins.
+     */
+    @Override
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
+        checkKey(fromKey);
+        checkKey(toKey);
+        return () -> new EntryIterator(root.get(), fromKey, toKey);
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.Comparator;
+
+/**
+ * An implementation of a sorted map using a red-black tree.
+ *
+ * The color of each node is stored in the aux field of the underlying tree,
+ * with 1 for red and 0 for black, so external nodes are black by default.
+ * An insertion performs at most one trinode restructuring, and a deletion at
+ * most one restructuring and one further rotation; otherwise only colors
+ * change, unlike AVL rebalancing, which recomputes heights along the path.
+ */
+public class RBTreeMap<K, V> extends TreeMap<K, V> {
+
+    /**
+     * Constructs an empty map using the natural ordering of keys.
+     */
+    public RBTreeMap() {
+        super();
+    }
+
+    /**
+     * Constructs an empty map using the given comparator to order keys.
+     *
+     * @param comp comparator defining the order of keys in the map
+     */
+    public RBTreeMap(Comparator<K> comp) {
+        super(comp);
+    }
+
+    // we use the inherited aux field with convention that 0=black and 1=red
+    // (note that new leaves will be black by default, as aux=0)
+    private boolean isBlack(Position<Entry<K, V>> p) {
+        return tree.getAux(p) == 0;
+    }
+
+    private boolean isRed(Position<Entry<K, V>> p) {
+        return tree.getAux(p) == 1;
+    }
+
+    private void makeBlack(Position<Entry<K, V>> p) {
+        tree.setAux(p, 0);
+    }
+
+    private void makeRed(Position<Entry<K, V>> p) {
+        tree.setAux(p, 1);
+    }
+
+    private void setColor(Position<Entry<K, V>> p, boolean toRed) {
+        tree.setAux(p, toRed ? 1 : 0);
+    }
+
+    /**
+     * Overrides the TreeMap rebalancing hook that is called after an insertion.
+     */
+    @Override
+    protected void rebalanceInsert(Position<Entry<K, V>> p) {
+        if (!isRoot(p)) {
+            makeRed(p);                                  // the new internal node is initially colored red
+            resolveRed(p);                               // but this may cause a double-red problem
+        }
+    }
+
+    /**
+     * Remedies potential double-red violation above red position p.
+     */
+    private void resolveRed(Position<Entry<K, V>> p) {
+        Position<Entry<K, V>> parent, uncle, middle, grand;   // used in case analysis
+        while (isRed(parent = parent(p))) {              // double-red problem
+            uncle = sibling(parent);
+            if (isBlack(uncle)) {                        // Case 1: misshapen 4-node
+                middle = restructure(p);                 // do trinode restructuring
+                makeBlack(middle);
+                makeRed(left(middle));
+                makeRed(right(middle));
+                return;
+            }
+            // Case 2: overfull 5-node
+            makeBlack(parent);                           // perform recoloring
+            makeBlack(uncle);
+            grand = parent(parent);
+            if (isRoot(grand)) return;
+            makeRed(grand);                              // grandparent becomes red
+            p = grand;                                   // and may cause a double-red above it
+        }
+    }
+
+    /**
+     * Overrides the TreeMap rebalancing hook that is called after a deletion.
+     */
+    @Override
+    protected void rebalanceDelete(Position<Entry<K, V>> p) {
+        if (isRed(p))                                    // deleted parent was black
+            makeBlack(p);                                // so this restores black depth
+        else if (!isRoot(p)) {
+            Position<Entry<K, V>> sib = sibling(p);
+            if (isInternal(sib) && (isBlack(sib) || isInternal(left(sib))))
+                remedyDoubleBlack(p);                    // sib's subtree has nonzero black height
+        }
+    }
+
+    /**
+     * Remedies a presumed double-black violation at the given (nonroot) position.
+     */
+    private void remedyDoubleBlack(Position<Entry<K, V>> p) {
+        while (true) {
+            Position<Entry<K, V>> z = parent(p);
+            Position<Entry<K, V>> y = sibling(p);
+            if (isRed(y)) {                              // Case 3: reorient 3-node
+                rotate(y);
+                makeBlack(y);
+                makeRed(z);
+                continue;                                // now p has a black sibling; try again
+            }
+            if (isRed(left(y)) || isRed(right(y))) {     // Case 1: trinode restructuring
+                Position<Entry<K, V>> x = (isRed(left(y)) ? left(y) : right(y));
+                Position<Entry<K, V>> middle = restructure(x);
+                setColor(middle, isRed(z));              // root of restructured subtree gets z's old color
+                makeBlack(left(middle));
+                makeBlack(right(middle));
+                return;
+            }
+            makeRed(y);                                  // Case 2: recoloring
+            if (isRed(z)) {
+                makeBlack(z);                            // problem is resolved
+                return;
+            }
+            if (isRoot(z)) return;
+            p = z;                                       // propagate the deficit upward
+        }
+    }
+
+    /**
+     * Returns a new empty red-black tree map with the same ordering of keys.
+     */
+    @Override
+    protected TreeMap<K, V> createMap() {
+        return new RBTreeMap<>(comparator());
+    }
+
+    /** Returns the number of black internal positions on the path from p down its left spine. */
+    private int spineBlackHeight(Position<Entry<K, V>> p) {
+        int bh = 0;
+        for (; isInternal(p); p = left(p))
+            if (isBlack(p)) bh++;
+        return bh;
+    }
+
+    /**
+     * Overrides the TreeMap hook that joins detached subtrees l and r around x.
+     * Both roots are first made black. If the black heights then differ, x is
+     * colored red and placed (with the subtree of lesser black height) along
+     * the inner spine of the other subtree, at the first black position of
+     * equal black height, and any double red is resolved as after an insertion.
+     */
+    @Override
+    protected Position<Entry<K, V>> joinSubtrees(Position<Entry<K, V>> l, Position<Entry<K, V>> x,
+                                                 Position<Entry<K, V>> r) {
+        makeBlack(l);                                 // leaves are black already
+        makeBlack(r);
+        int bl = spineBlackHeight(l), br = spineBlackHeight(r);
+        if (bl == br) {
+            tree.link(x, l, r);
+            makeBlack(x);
+            return x;
+        }
+        boolean leftTaller = bl > br;
+        Position<Entry<K, V>> top = (leftTaller ? l : r);
+        Position<Entry<K, V>> c = top;
+        int bh = Math.max(bl, br), target = Math.min(bl, br);
+        while (isRed(c) || bh > target) {             // descend the inner spine
+            if (isBlack(c)) bh--;
+            c = (leftTaller ? right(c) : left(c));
+        }
+        Position<Entry<K, V>> p = parent(c);
+        tree.setRoot(top);                            // the taller subtree is our working tree
+        if (leftTaller)
+            tree.link(x, c, r);
+        else
+            tree.link(x, l, c);
+        makeRed(x);
+        tree.setChild(p, x, !leftTaller);            // x takes the place of c
+        resolveRed(x);
+        tree.recomputeUpward(x);                      // sizes above any rotations
+        return root();
+    }
+
+    /**
+     * Overrides the TreeMap hook called after a bulk operation installs a new root.
+     */
+    @Override
+    protected void rebalanceRoot(Position<Entry<K, V>> p) {
+        makeBlack(p);                                 // a subtree's root may be red
+    }
+
+    /**
+     * Ensure that current tree structure is a valid red-black tree (for debug use only).
+     */
+    private boolean sanityCheck() {
+        if (isRed(root())) {
+            System.out.println("VIOLATION: Red root");
+            return false;
+        }
+        return blackHeight(root()) >= 0;
+    }
+
+    /** Returns the black height of the subtree at p, or -1 if it is not a valid red-black tree. */
+    private int blackHeight(Position<Entry<K, V>> p) {
+        if (isExternal(p)) return (isBlack(p) ? 0 : -1);
+        if (isRed(p) && (isRed(left(p)) || isRed(right(p)))) {
+            System.out.println("VIOLATION: Double red at node with key " + p.getElement().getKey());
+            dump();
+            return -1;
+        }
+        int left = blackHeight(left(p));
+        int right = blackHeight(right(p));
+        if (left < 0 || left != right) return -1;
+        return left + (isBlack(p) ? 1 : 0);
+    }
+}
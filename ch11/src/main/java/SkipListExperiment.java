@@ -0,0 +1,101 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical test of how a mixed workload of lookups (80%),
+ * insertions (10%) and removals (10%) scales with the number of threads,
+ * comparing ConcurrentSkipListSortedMap against an AVLTreeMap guarded by a
+ * single lock. Thread counts double from 1 to 32, and every thread also runs
+ * a short range scan with subMap once per thousand operations.
+ *
+ * The first command line argument can be used to change the number of
+ * operations per thread, and the second the number of distinct keys.
+ */
+public class SkipListExperiment {
+
+    /** Runs the given per-thread task on t threads at once, returning elapsed milliseconds. */
+    private static long runThreads(int t, Runnable task) throws InterruptedException {
+        Thread[] workers = new Thread[t];
+        for (int j = 0; j < t; j++)
+            workers[j] = new Thread(task);
+        long startTime = System.currentTimeMillis();
+        for (Thread w : workers)
+            w.start();
+        for (Thread w : workers)
+            w.join();
+        return Math.max(1, System.currentTimeMillis() - startTime);
+    }
+
+    /** Returns an array of keys drawn at random from a range of the given size. */
+    private static Integer[] randomKeys(int ops, int distinct, long seed) {
+        Integer[] keys = new Integer[ops];
+        Random rand = new Random(seed);
+        for (int j = 0; j < ops; j++)
+            keys[j] = rand.nextInt(distinct);
+        return keys;
+    }
+
+    /** Fills m with every even key of the range, so about half the lookups succeed. */
+    private static void preload(SortedMap<Integer, Integer> m, int distinct) {
+        for (int k = 0; k < distinct; k += 2)
+            m.put(k, k);
+    }
+
+    /** Performs operation j of the mix on m, returning a value that keeps it from being optimized away. */
+    private static int operate(SortedMap<Integer, Integer> m, Integer k, int j) {
+        int choice = j % 10;
+        if (choice == 0) {
+            m.put(k, j);
+        } else if (choice == 1) {
+            m.remove(k);
+        } else if (j % 1000 == 2) {
+            int count = 0;
+            for (Entry<Integer, Integer> e : m.subMap(k, k + 64))
+                count++;
+            return count;
+        } else {
+            Integer v = m.get(k);
+            return (v == null ? 0 : 1);
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int ops = 1000000;
+        int distinct = 100000;
+        try {
+            if (args.length > 0)
+                ops = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                distinct = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+        final Integer[] keys = randomKeys(ops, distinct, 42);
+        final int[] sink = new int[1];
+
+        for (int t = 1; t <= 32; t *= 2) {
+            ConcurrentSkipListSortedMap<Integer, Integer> skipList = new ConcurrentSkipListSortedMap<>();
+            preload(skipList, distinct);
+            long elapsed = runThreads(t, () -> {
+                int hits = 0;
+                for (int j = 0; j < keys.length; j++)
+                    hits += operate(skipList, keys[j], j);
+                sink[0] += hits;
+            });
+            System.out.println(String.format("threads: %2d  ConcurrentSkipListSortedMap: %8.2f Mops/s",
+                    t, (double) t * ops / elapsed / 1000));
+
+            AVLTreeMap<Integer, Integer> tree = new AVLTreeMap<>();
+            preload(tree, distinct);
+            elapsed = runThreads(t, () -> {
+                int hits = 0;
+                for (int j = 0; j < keys.length; j++)
+                    synchronized (tree) {
+                        hits += operate(tree, keys[j], j);
+                    }
+                sink[0] += hits;
+            });
+            System.out.println(String.format("threads: %2d  synchronized AVLTreeMap:      %8.2f Mops/s",
+                    t, (double) t * ops / elapsed / 1000));
+        }
+        if (sink[0] == 42) System.out.println();   // keep the lookups from being optimized away
+    }
+}
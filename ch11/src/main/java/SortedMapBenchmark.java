@@ -0,0 +1,251 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Provides an empirical comparison of every general-purpose SortedMap
+ * implementation under a range of workloads, so that one can be chosen for a
+ * given access pattern from data.
+ *
+ * For each map size and key distribution, each map is loaded with n keys and
+ * then runs three operation mixes in turn: read-only, read-mostly (90% reads)
+ * and write-heavy (50% reads). Writes alternately insert and remove keys
+ * between the loaded ones, so the size stays close to n. The distributions are
+ *
+ *   uniform      random load order, lookups uniform over the keys
+ *   zipf         random load order, the key of popularity rank r drawn with
+ *                probability about 1/(r+1), with popular keys scattered
+ *   sequential   sorted load order, lookups cycling through the keys in order
+ *   adversarial  sorted load order, lookups in bit-reversal order
+ *
+ * For each trial, four numbers are reported:
+ *
+ *   - nanoseconds per operation;
+ *   - key comparisons per operation, counted by a wrapped Comparator;
+ *   - bytes allocated per operation, from the JVM's per-thread allocation
+ *     counter;
+ *   - for maps built on TreeMap, the final tree height.
+ *
+ * Trials that would take quadratic time are skipped. These are the table-based
+ * maps beyond TABLE_LIMIT keys, and the unbalanced TreeMap loaded in sorted
+ * order beyond UNBALANCED_LIMIT keys.
+ *
+ * The first command line argument can be used to change the number of
+ * operations per mix. The second can be used to change the map sizes, as a
+ * comma-separated list; sizes are limited only by the heap.
+ */
+public class SortedMapBenchmark {
+    private static final int TABLE_LIMIT = 100000;       // largest size tried for array-based maps
+    private static final int UNBALANCED_LIMIT = 10000;   // largest sorted load tried for TreeMap
+    private static final String[] DISTRIBUTIONS = {"uniform", "zipf", "sequential", "adversarial"};
+    private static final int[] READ_PERCENTS = {100, 90, 50};
+
+    /** A comparator of integers that counts how often it is called. */
+    private static class CountingComparator implements Comparator<Integer> {
+        long count = 0;
+
+        @Override
+        public int compare(Integer a, Integer b) {
+            count++;
+            return Integer.compare(a, b);
+        }
+    }
+
+    /** A map implementation under test. */
+    private static class Contender {
+        String name;
+        Function<Comparator<Integer>, SortedMap<Integer, Integer>> factory;
+        boolean tableBased;                  // updates take linear time
+        boolean unbalanced;                  // sorted loading takes quadratic time
+
+        Contender(String name, Function<Comparator<Integer>, SortedMap<Integer, Integer>> factory,
+                  boolean tableBased, boolean unbalanced) {
+            this.name = name;
+            this.factory = factory;
+            this.tableBased = tableBased;
+            this.unbalanced = unbalanced;
+        }
+    }
+
+    private static final Contender[] CONTENDERS = {
+            new Contender("TreeMap", TreeMap::new, false, true),
+            new Contender("AVLTreeMap", AVLTreeMap::new, false, false),
+            new Contender("RBTreeMap", RBTreeMap::new, false, false),
+            new Contender("SplayTreeMap", SplayTreeMap::new, false, false),
+            new Contender("ConcurrentSplayTreeMap", ConcurrentSplayTreeMap::new, false, false),
+            new Contender("PersistentTreeMap", PersistentTreeMap::new, false, false),
+            new Contender("BPlusTreeMap", c -> new BPlusTreeMap<>(c, 64), false, false),
+            new Contender("LSMSortedMap", LSMSortedMap::new, false, false),
+            new Contender("SortedTableMap", SortedTableMap::new, true, false),
+            new Contender("ColumnarSortedTableMap", ColumnarSortedTableMap::new, true, false),
+            new Contender("ConcurrentSkipListSortedMap", ConcurrentSkipListSortedMap::new, false, false),
+    };
+
+    /** Returns a bijection of 0..n-1 that scatters neighboring indices across the range. */
+    private static int scatter(long i, int n) {
+        return (int) ((i * 2654435761L) % n);     // 2654435761 is prime, so this is one-to-one
+    }
+
+    /** Returns the bit-reversal order of 0..n-1: a classic worst case for splay trees. */
+    private static int[] bitReversal(int n) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, n - 1));
+        int[] order = new int[n];
+        int count = 0;
+        for (int j = 0; count < n; j++) {
+            int r = (bits == 0 ? 0 : Integer.reverse(j) >>> (32 - bits));
+            if (r < n) order[count++] = r;
+        }
+        return order;
+    }
+
+    /** Returns the indices 0..n-1 of the loaded keys, in the order of loading. */
+    private static int[] loadOrder(String dist, int n, Random rand) {
+        int[] order = new int[n];
+        for (int j = 0; j < n; j++)
+            order[j] = j;
+        if (dist.equals("uniform") || dist.equals("zipf"))
+            for (int j = n - 1; j > 0; j--) {     // Fisher-Yates shuffle
+                int k = rand.nextInt(j + 1);
+                int temp = order[j];
+                order[j] = order[k];
+                order[k] = temp;
+            }
+        return order;
+    }
+
+    /** Returns the index of the key used by each of ops operations. */
+    private static int[] accessOrder(String dist, int n, int ops, Random rand) {
+        int[] order = new int[ops];
+        int[] reversal = (dist.equals("adversarial") ? bitReversal(n) : null);
+        double logRange = Math.log(n + 1);
+        for (int j = 0; j < ops; j++)
+            switch (dist) {
+                case "uniform":
+                    order[j] = rand.nextInt(n);
+                    break;
+                case "zipf":                      // rank r has probability ln((r+2)/(r+1)) / ln(n+1)
+                    int rank = Math.min(n - 1, (int) Math.exp(rand.nextDouble() * logRange) - 1);
+                    order[j] = scatter(rank, n);
+                    break;
+                case "sequential":
+                    order[j] = j % n;
+                    break;
+                default:
+                    order[j] = reversal[j % n];
+            }
+        return order;
+    }
+
+    /** Returns the number of levels of internal nodes in the tree of m. */
+    private static int height(TreeMap<Integer, Integer> m) {
+        int best = 0;
+        ArrayDeque<Position<Entry<Integer, Integer>>> stack = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        stack.push(m.root());
+        depths.push(0);
+        while (!stack.isEmpty()) {                // iterative, as an unbalanced tree may be deep
+            Position<Entry<Integer, Integer>> p = stack.pop();
+            int d = depths.pop();
+            if (m.isInternal(p)) {
+                best = Math.max(best, d + 1);
+                stack.push(m.left(p));
+                depths.push(d + 1);
+                stack.push(m.right(p));
+                depths.push(d + 1);
+            }
+        }
+        return best;
+    }
+
+    /** Returns the number of bytes allocated so far by this thread (or -1 if unsupported). */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        return -1;
+    }
+
+    /**
+     * Runs one operation per element of keys on m, with the given percentage of
+     * reads, returning a value that keeps the lookups from being optimized away.
+     * The keys are boxed in advance so that the harness itself allocates nothing.
+     */
+    private static long runMix(SortedMap<Integer, Integer> m, Integer[] keys, Integer[] between, int readPercent) {
+        long sum = 0;
+        for (int j = 0; j < keys.length; j++) {
+            if ((j * 37) % 100 < readPercent) {   // spreads the writes evenly through the run
+                Integer v = m.get(keys[j]);
+                if (v != null) sum += v;
+            } else if ((j & 1) == 0)
+                m.put(between[j], keys[j]);       // an odd key between loaded ones
+            else
+                m.remove(between[j]);
+        }
+        return sum;
+    }
+
+    /** Runs every trial for the given sizes, printing the results if report is true. */
+    private static long runTrials(int[] sizes, int ops, Random rand, boolean report) {
+        long sink = 0;
+        for (int n : sizes)
+            for (String dist : DISTRIBUTIONS) {
+                int[] load = loadOrder(dist, n, rand);
+                int[] access = accessOrder(dist, n, ops, rand);
+                Integer[] keys = new Integer[ops];
+                Integer[] between = new Integer[ops];
+                for (int j = 0; j < ops; j++) {
+                    keys[j] = 2 * access[j];      // loaded keys are even
+                    between[j] = 2 * access[j] + 1;
+                }
+                boolean sorted = dist.equals("sequential") || dist.equals("adversarial");
+                for (Contender c : CONTENDERS) {
+                    if ((c.tableBased && n > TABLE_LIMIT) || (c.unbalanced && sorted && n > UNBALANCED_LIMIT)) {
+                        if (report)
+                            System.out.println(String.format("n: %9d  %-11s %-27s skipped (quadratic)", n, dist, c.name));
+                        continue;
+                    }
+                    CountingComparator comp = new CountingComparator();
+                    SortedMap<Integer, Integer> m = c.factory.apply(comp);
+                    for (int i : load)
+                        m.put(2 * i, i);
+                    for (int readPercent : READ_PERCENTS) {
+                        comp.count = 0;
+                        long bytes = allocatedBytes();
+                        long startTime = System.nanoTime();
+                        sink += runMix(m, keys, between, readPercent);
+                        long elapsed = System.nanoTime() - startTime;
+                        bytes = allocatedBytes() - bytes;
+                        if (!report) continue;
+                        String height = (m instanceof TreeMap ? Integer.toString(height((TreeMap<Integer, Integer>) m)) : "-");
+                        System.out.println(String.format(
+                                "n: %9d  %-11s %-27s reads: %3d%%  ns/op: %8.1f  cmp/op: %6.1f  B/op: %7.1f  height: %s",
+                                n, dist, c.name, readPercent, (double) elapsed / ops,
+                                (double) comp.count / ops, (double) bytes / ops, height));
+                    }
+                }
+            }
+        return sink;
+    }
+
+    public static void main(String[] args) {
+        int ops = 200000;
+        int[] sizes = {1000, 100000, 1000000};
+        try {
+            if (args.length > 0)
+                ops = Integer.parseInt(args[0]);
+            if (args.length > 1) {
+                String[] parts = args[1].split(",");
+                sizes = new int[parts.length];
+                for (int j = 0; j < parts.length; j++)
+                    sizes[j] = Integer.parseInt(parts[j].trim());
+            }
+        } catch (NumberFormatException e) { }
+        Random rand = new Random(42);
+
+        long sink = runTrials(new int[]{1000}, 20000, rand, false);   // warms up the JIT
+        sink += runTrials(sizes, ops, rand, true);
+        if (sink == 42) System.out.println();
+    }
+}
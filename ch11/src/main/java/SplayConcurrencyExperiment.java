@@ -0,0 +1,96 @@
+import java.util.Random;
+
+/**
+ * Provides an empirical test of a read-mostly workload (95% lookups, 5%
+ * insertions) with skewed key popularity, in which 64 hot keys scattered
+ * through the key range receive 90% of the operations, as the number of threads doubles from 1 to 8. It compares
+ * ConcurrentSplayTreeMap, whose lookups are optimistic and splay only when
+ * sampled, with a SplayTreeMap and an AVLTreeMap each guarded by a single lock.
+ *
+ * The first command line argument can be used to change the number of
+ * operations per thread, and the second the number of distinct keys.
+ */
+public class SplayConcurrencyExperiment {
+
+    /** Runs the given per-thread task on t threads at once, returning elapsed milliseconds. */
+    private static long runThreads(int t, Runnable task) throws InterruptedException {
+        Thread[] workers = new Thread[t];
+        for (int j = 0; j < t; j++)
+            workers[j] = new Thread(task);
+        long startTime = System.currentTimeMillis();
+        for (Thread w : workers)
+            w.start();
+        for (Thread w : workers)
+            w.join();
+        return Math.max(1, System.currentTimeMillis() - startTime);
+    }
+
+    /** Returns keys of which 90% are drawn from 64 hot keys and the rest from the whole range. */
+    private static Integer[] skewedKeys(int ops, int distinct, long seed) {
+        Integer[] keys = new Integer[ops];
+        Random rand = new Random(seed);
+        for (int j = 0; j < ops; j++)
+            if (rand.nextInt(10) < 9)
+                keys[j] = (int) ((rand.nextInt(64) * 2654435761L) % distinct);   // a hot key
+            else
+                keys[j] = rand.nextInt(distinct);
+        return keys;
+    }
+
+    /** Performs operation j of the mix on m, returning a value that keeps it from being optimized away. */
+    private static int operate(SortedMap<Integer, Integer> m, Integer k, int j) {
+        if (j % 20 == 0) {
+            m.put(k, j);
+            return 0;
+        }
+        Integer v = m.get(k);
+        return (v == null ? 0 : 1);
+    }
+
+    /** Reports the throughput of the workload on m with t threads, locking m if requested. */
+    private static void run(String name, SortedMap<Integer, Integer> m, boolean locked, int t,
+                            Integer[] keys, int[] sink) throws InterruptedException {
+        long elapsed = runThreads(t, () -> {
+            int hits = 0;
+            for (int j = 0; j < keys.length; j++)
+                if (locked)
+                    synchronized (m) {
+                        hits += operate(m, keys[j], j);
+                    }
+                else
+                    hits += operate(m, keys[j], j);
+            sink[0] += hits;
+        });
+        System.out.println(String.format("threads: %d  %-26s %8.2f Mops/s",
+                t, name + ":", (double) t * keys.length / elapsed / 1000));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int ops = 2000000;
+        int distinct = 100000;
+        try {
+            if (args.length > 0)
+                ops = Integer.parseInt(args[0]);
+            if (args.length > 1)
+                distinct = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) { }
+        Integer[] keys = skewedKeys(ops, distinct, 42);
+        int[] sink = new int[1];
+
+        for (int t = 1; t <= 8; t *= 2) {
+            SortedMap<Integer, Integer> concurrent = new ConcurrentSplayTreeMap<>();
+            SortedMap<Integer, Integer> splay = new SplayTreeMap<>();
+            SortedMap<Integer, Integer> avl = new AVLTreeMap<>();
+            for (int k = 0; k < distinct; k += 2) {   // preload every even key, in random order
+                int r = (int) ((k * 2654435761L) % distinct) & ~1;
+                concurrent.put(r, r);
+                splay.put(r, r);
+                avl.put(r, r);
+            }
+            run("ConcurrentSplayTreeMap", concurrent, false, t, keys, sink);
+            run("synchronized SplayTreeMap", splay, true, t, keys, sink);
+            run("synchronized AVLTreeMap", avl, true, t, keys, sink);
+        }
+        if (sink[0] == 42) System.out.println();   // keep the lookups from being optimized away
+    }
+}
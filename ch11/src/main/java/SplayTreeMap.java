@@ -41,6 +41,10 @@ public class SplayTreeMap<K,V> extends TreeMap<K,V> {
    */
   public SplayTreeMap(Comparator<K> comp) { super(comp); }
 
+  /** Returns a new empty splay tree map with the same ordering of keys. */
+  @Override
+  protected TreeMap<K,V> createMap() { return new SplayTreeMap<>(comparator()); }
+
   /** Utility used to rebalance after a map operation. */
   private void splay(Position<Entry<K,V>> p) {
     while (!isRoot(p)) {
@@ -23,10 +23,24 @@
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * An implementation of a sorted map using a binary search tree.
  *
+ * Every node also records the number of entries in its subtree, kept current
+ * through insertions, removals and rotations, which supports rank, select and
+ * countRange in time proportional to the height of the tree. An Augmentation
+ * may be installed to maintain an aggregate of each subtree in the same way,
+ * for use by aggregate.
+ *
+ * Bulk operations (buildFromSorted, split, join and union) are built from
+ * two primitives on detached subtrees: joining two subtrees around a middle
+ * entry, which balanced tree subclasses override via joinSubtrees, and
+ * splitting a subtree around a key.
+ *
  * @author Michael T. Goodrich
  * @author Roberto Tamassia
  * @author Michael H. Goldwasser
@@ -39,7 +53,8 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
      * A specialized version of the LinkedBinaryTree class with
      * additional mutators to support binary search tree operations, and
      * a specialized node class that includes an auxiliary instance
-     * variable for balancing data.
+     * variable for balancing data, as well as the size and aggregate of
+     * its subtree.
      */
     protected static class BalanceableBinaryTree<K, V>
         extends LinkedBinaryTree<Entry<K, V>> {
@@ -47,6 +62,8 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
         // this extends the inherited LinkedBinaryTree.Node class
         protected static class BSTNode<E> extends Node<E> {
             int aux = 0;
+            int size = 0;          // number of entries in this subtree (0 at a leaf)
+            Object agg;            // aggregate of this subtree, if the tree is augmented
 
             BSTNode(E e, Node<E> parent, Node<E> leftChild, Node<E> rightChild) {
                 super(e, parent, leftChild, rightChild);
@@ -70,6 +87,100 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
             ((BSTNode<Entry<K, V>>) p).setAux(value);
         }
 
+        private Augmentation<K, V, Object> augmentation;   // null unless installed
+        private Object identity;                           // identity of the augmentation
+
+        public int getSize(Position<Entry<K, V>> p) {
+            return ((BSTNode<Entry<K, V>>) p).size;
+        }
+
+        /** Returns the aggregate of p's subtree (the identity at a leaf). */
+        public Object getAggregate(Position<Entry<K, V>> p) {
+            BSTNode<Entry<K, V>> node = (BSTNode<Entry<K, V>>) p;
+            return (node.size == 0 ? identity : node.agg);
+        }
+
+        /** Returns the augmentation lifted value of the entry at p. */
+        public Object lift(Position<Entry<K, V>> p) {
+            return augmentation.lift(p.getElement().getKey(), p.getElement().getValue());
+        }
+
+        public Augmentation<K, V, Object> getAugmentation() {
+            return augmentation;
+        }
+
+        /** Installs the given augmentation (or none, if null) and computes every aggregate. */
+        @SuppressWarnings({"unchecked"})
+        public void setAugmentation(Augmentation<K, V, ?> a) {
+            augmentation = (Augmentation<K, V, Object>) a;
+            identity = (a == null ? null : augmentation.identity());
+            for (Position<Entry<K, V>> p : postorder())
+                if (isInternal(p)) recompute(validate(p));
+        }
+
+        /** Recomputes the size and aggregate of internal node x from its children. */
+        private void recompute(Node<Entry<K, V>> x) {
+            BSTNode<Entry<K, V>> node = (BSTNode<Entry<K, V>>) x;
+            BSTNode<Entry<K, V>> left = (BSTNode<Entry<K, V>>) x.getLeft();
+            BSTNode<Entry<K, V>> right = (BSTNode<Entry<K, V>>) x.getRight();
+            node.size = 1 + left.size + right.size;
+            if (augmentation != null)
+                node.agg = augmentation.combine(augmentation.combine(getAggregate(left), lift(node)),
+                        getAggregate(right));
+        }
+
+        /** Recomputes the size and aggregate of internal position p and all of its ancestors. */
+        public void recomputeUpward(Position<Entry<K, V>> p) {
+            for (Node<Entry<K, V>> x = validate(p); x != null; x = x.getParent())
+                recompute(x);
+        }
+
+        /** Gives this tree the same augmentation as other, without recomputing any aggregate. */
+        public void shareAugmentation(BalanceableBinaryTree<K, V> other) {
+            augmentation = other.augmentation;
+            identity = other.identity;
+        }
+
+        /**
+         * Returns the number of nodes in the tree, which is determined by the
+         * subtree size recorded at the root (so bulk operations need not count).
+         */
+        @Override
+        public int size() {
+            return (root == null ? 0 : 2 * getSize(root) + 1);
+        }
+
+        // utilities for bulk operations, which assemble detached subtrees
+
+        /** Returns a new detached internal position storing e (its children are set by link). */
+        public Position<Entry<K, V>> newNode(Entry<K, V> e) {
+            return createNode(e, null, null, null);
+        }
+
+        /** Returns a new detached leaf. */
+        public Position<Entry<K, V>> newLeaf() {
+            return createNode(null, null, null, null);
+        }
+
+        /** Makes l and r the children of x, and recomputes the size and aggregate of x. */
+        public void link(Position<Entry<K, V>> x, Position<Entry<K, V>> l, Position<Entry<K, V>> r) {
+            Node<Entry<K, V>> node = validate(x);
+            relink(node, validate(l), true);
+            relink(node, validate(r), false);
+            recompute(node);
+        }
+
+        /** Makes child the left (or right) child of internal position p. */
+        public void setChild(Position<Entry<K, V>> p, Position<Entry<K, V>> child, boolean makeLeftChild) {
+            relink(validate(p), validate(child), makeLeftChild);
+        }
+
+        /** Makes p, whose subtree becomes the entire tree, the root. */
+        public void setRoot(Position<Entry<K, V>> p) {
+            root = validate(p);
+            root.setParent(null);
+        }
+
         // Override node factory function to produce a BSTNode (rather than a Node)
         @Override
         protected Node<Entry<K, V>> createNode(Entry<K, V> e, Node<Entry<K, V>> parent,
@@ -118,6 +229,8 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
                 relink(y, x.getLeft(), false);           // x's left child becomes y's right
                 relink(x, y, true);                      // y becomes left child of x
             }
+            recompute(y);                                // y is now below x, so update it first
+            recompute(x);
         }
 
         /**
@@ -257,15 +370,39 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
      * @return Position holding key, or last node reached during search
      */
     private Position<Entry<K, V>> treeSearch(Position<Entry<K, V>> p, K key) {
-        if (isExternal(p))
-            return p;                          // key not found; return the final leaf
-        int comp = compare(key, p.getElement());
-        if (comp == 0)
-            return p;                          // key found; return its position
-        else if (comp < 0)
-            return treeSearch(left(p), key);   // search left subtree
-        else
-            return treeSearch(right(p), key);  // search right subtree
+        while (isInternal(p)) {
+            int comp = compare(key, p.getElement());
+            if (comp == 0)
+                return p;                      // key found; return its position
+            p = (comp < 0 ? left(p) : right(p));   // continue in the appropriate subtree
+        }
+        return p;                              // key not found; return the final leaf
+    }
+
+    /**
+     * Returns the position with the least key greater than or equal to the given key (or null if none).
+     */
+    private Position<Entry<K, V>> ceilingPosition(K key) {
+        Position<Entry<K, V>> p = treeSearch(root(), key);
+        if (isInternal(p)) return p;           // exact match
+        while (!isRoot(p)) {
+            if (p == left(parent(p)))
+                return parent(p);              // parent has next greater key
+            else
+                p = parent(p);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the position with the next greater key after internal position p (or null if none).
+     */
+    protected Position<Entry<K, V>> successor(Position<Entry<K, V>> p) {
+        if (isInternal(right(p)))
+            return treeMin(right(p));          // leftmost position of the right subtree
+        while (!isRoot(p) && p == right(parent(p)))
+            p = parent(p);                     // climb while we are a right child
+        return parent(p);                      // null if we climbed from the root
     }
 
     /**
@@ -326,11 +463,15 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
         Position<Entry<K, V>> p = treeSearch(root(), key);
         if (isExternal(p)) {                    // key is new
             expandExternal(p, newEntry);
+            modCount++;
+            tree.recomputeUpward(p);              // one more entry on the path to the root
             rebalanceInsert(p);                   // hook for balanced tree subclasses
             return null;
         } else {                                // replacing existing key
             V old = p.getElement().getValue();
             set(p, newEntry);
+            if (tree.getAugmentation() != null)
+                tree.recomputeUpward(p);            // aggregates depend on the value
             rebalanceAccess(p);                   // hook for balanced tree subclasses
             return old;
         }
@@ -361,6 +502,9 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
             Position<Entry<K, V>> sib = sibling(leaf);
             remove(leaf);
             remove(p);                            // sib is promoted in p's place
+            modCount++;
+            if (!isRoot(sib))
+                tree.recomputeUpward(parent(sib));  // one fewer entry on the path to the root
             rebalanceDelete(sib);                 // hook for balanced tree subclasses
             return old;
         }
@@ -400,15 +544,8 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
     @Override
     public Entry<K, V> ceilingEntry(K key) throws IllegalArgumentException {
         checkKey(key);                              // may throw IllegalArgumentException
-        Position<Entry<K, V>> p = treeSearch(root(), key);
-        if (isInternal(p)) return p.getElement();   // exact match
-        while (!isRoot(p)) {
-            if (p == left(parent(p)))
-                return parent(p).getElement();          // parent has next greater key
-            else
-                p = parent(p);
-        }
-        return null;                                // no such ceiling exists
+        Position<Entry<K, V>> p = ceilingPosition(key);
+        return (p == null ? null : p.getElement()); // null if no such ceiling exists
     }
 
     /**
@@ -478,24 +615,180 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
         return null;                                 // no such greater key exists
     }
 
-    // Support for iteration
+    // Support for order statistics and range aggregates
+
+    /**
+     * Returns the number of entries with keys strictly less than the given key.
+     *
+     * @throws IllegalArgumentException if the key is not compatible with the map
+     */
+    public int rank(K key) throws IllegalArgumentException {
+        checkKey(key);                          // may throw IllegalArgumentException
+        int r = 0;
+        Position<Entry<K, V>> p = root();
+        while (isInternal(p)) {
+            if (compare(key, p.getElement()) <= 0)
+                p = left(p);
+            else {
+                r += tree.getSize(left(p)) + 1; // p and its left subtree precede the key
+                p = right(p);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Returns the entry with the i-th smallest key, counting from zero.
+     *
+     * @throws IndexOutOfBoundsException if i is not in the range 0 to size()-1
+     */
+    public Entry<K, V> select(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size()) throw new IndexOutOfBoundsException("Invalid index: " + i);
+        Position<Entry<K, V>> p = root();
+        while (true) {
+            int leftSize = tree.getSize(left(p));
+            if (i < leftSize)
+                p = left(p);
+            else if (i == leftSize)
+                return p.getElement();
+            else {
+                i -= leftSize + 1;              // skip p and its left subtree
+                p = right(p);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries with keys in the range from fromKey
+     * inclusive to toKey exclusive.
+     *
+     * @throws IllegalArgumentException if a key is not compatible with the map
+     */
+    public int countRange(K fromKey, K toKey) throws IllegalArgumentException {
+        return Math.max(0, rank(toKey) - rank(fromKey));
+    }
+
+    /**
+     * Installs an augmentation whose aggregate is then maintained for every
+     * subtree, replacing any previous one (null removes it). Installation takes
+     * O(n) time; afterward each update costs O(1) combinations per node whose
+     * subtree changes.
+     */
+    public void setAugmentation(Augmentation<K, V, ?> augmentation) {
+        tree.setAugmentation(augmentation);
+    }
+
+    /**
+     * Returns the aggregate of the entries with keys in the range from fromKey
+     * inclusive to toKey exclusive, as defined by the installed augmentation.
+     *
+     * @throws IllegalArgumentException if augmentation is not the one installed, or a key is not compatible with the map
+     */
+    @SuppressWarnings({"unchecked"})
+    public <A> A aggregate(Augmentation<K, V, A> augmentation, K fromKey, K toKey)
+            throws IllegalArgumentException {
+        if (augmentation == null || augmentation != tree.getAugmentation())
+            throw new IllegalArgumentException("Augmentation is not installed");
+        checkKey(fromKey);                      // may throw IllegalArgumentException
+        checkKey(toKey);
+        Position<Entry<K, V>> p = root();
+        // descend to the highest position within the range, if any
+        while (isInternal(p)) {
+            if (compare(p.getElement(), fromKey) < 0)
+                p = right(p);
+            else if (compare(p.getElement(), toKey) >= 0)
+                p = left(p);
+            else
+                break;
+        }
+        if (isExternal(p)) return augmentation.identity();
+        // entries of p's left subtree at or above fromKey, in order
+        A low = augmentation.identity();
+        for (Position<Entry<K, V>> walk = left(p); isInternal(walk); )
+            if (compare(walk.getElement(), fromKey) >= 0) {
+                A found = augmentation.combine((A) tree.lift(walk), (A) tree.getAggregate(right(walk)));
+                low = augmentation.combine(found, low);   // found precedes all found so far
+                walk = left(walk);
+            } else
+                walk = right(walk);
+        // entries of p's right subtree below toKey, in order
+        A high = augmentation.identity();
+        for (Position<Entry<K, V>> walk = right(p); isInternal(walk); )
+            if (compare(walk.getElement(), toKey) < 0) {
+                A found = augmentation.combine((A) tree.getAggregate(left(walk)), (A) tree.lift(walk));
+                high = augmentation.combine(high, found); // found follows all found so far
+                walk = right(walk);
+            } else
+                walk = left(walk);
+        return augmentation.combine(augmentation.combine(low, (A) tree.lift(p)), high);
+    }
+
+    // Support for iteration, walking the tree in order through parent links
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private Position<Entry<K, V>> next;    // position of next entry to report (or null)
+        private K stop;                        // exclusive upper bound (or null for none)
+        private int expectedModCount = modCount;
+
+        EntryIterator(Position<Entry<K, V>> start, K stop) {
+            next = start;
+            this.stop = stop;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // a removal may have emptied the position next, so check before comparing
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            return next != null && (stop == null || compare(next.getElement(), stop) < 0);
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            Entry<K, V> answer = next.getElement();
+            next = successor(next);
+            return answer;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class EntryIterable implements Iterable<Entry<K, V>> {
+        private K start, stop;                 // range of keys (null for unbounded)
+
+        EntryIterable(K start, K stop) {
+            this.start = start;
+            this.stop = stop;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            if (start == null)
+                return new EntryIterator(isEmpty() ? null : treeMin(root()), stop);
+            return new EntryIterator(ceilingPosition(start), stop);
+        }
+    }
 
     /**
      * Returns an iterable collection of all key-value entries of the map.
+     * Entries are produced on demand by an in-order walk of the tree, using
+     * O(1) extra space; the iteration fails fast if entries are added or removed.
      *
      * @return iterable collection of the map's entries
      */
     @Override
     public Iterable<Entry<K, V>> entrySet() {
-        ArrayList<Entry<K, V>> buffer = new ArrayList<>(size());
-        for (Position<Entry<K, V>> p : tree.inorder())
-            if (isInternal(p)) buffer.add(p.getElement());
-        return buffer;
+        return new EntryIterable(null, null);
     }
 
     /**
      * Returns an iterable containing all entries with keys in the range from
-     * <code>fromKey</code> inclusive to <code>toKey</code> exclusive.
+     * <code>fromKey</code> inclusive to <code>toKey</code> exclusive. As with
+     * entrySet, entries are produced on demand, so a caller can stop early at
+     * little cost.
      *
      * @return iterable with keys in desired range
      * @throws IllegalArgumentException if <code>fromKey</code> or <code>toKey</code> is not compatible with the map
@@ -504,26 +797,192 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
     public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
         checkKey(fromKey);                                // may throw IllegalArgumentException
         checkKey(toKey);                                  // may throw IllegalArgumentException
-        ArrayList<Entry<K, V>> buffer = new ArrayList<>(size());
-        if (compare(fromKey, toKey) < 0)                  // ensure that fromKey < toKey
-            subMapRecurse(fromKey, toKey, root(), buffer);
-        return buffer;
+        return new EntryIterable(fromKey, toKey);
     }
 
-    // utility to fill subMap buffer recursively (while maintaining order)
-    private void subMapRecurse(K fromKey, K toKey, Position<Entry<K, V>> p,
-                               ArrayList<Entry<K, V>> buffer) {
-        if (isInternal(p))
-            if (compare(p.getElement(), fromKey) < 0)
-                // p's key is less than fromKey, so any relevant entries are to the right
-                subMapRecurse(fromKey, toKey, right(p), buffer);
-            else {
-                subMapRecurse(fromKey, toKey, left(p), buffer); // first consider left subtree
-                if (compare(p.getElement(), toKey) < 0) {       // p is within range
-                    buffer.add(p.getElement());                      // so add it to buffer, and consider
-                    subMapRecurse(fromKey, toKey, right(p), buffer); // right subtree as well
-                }
-            }
+    // Support for bulk operations
+
+    /**
+     * Returns a new empty map of the same kind, with the same ordering of keys.
+     * Subclasses override this so that split produces maps of their own kind.
+     */
+    protected TreeMap<K, V> createMap() {
+        return new TreeMap<>(comparator());
+    }
+
+    /**
+     * Joins the detached subtrees rooted at l and r, whose keys are respectively
+     * less than and greater than that of the detached internal position x, and
+     * returns the root of the combined subtree, which contains all three. The
+     * tree's root may be used as scratch space. This version simply makes x
+     * the parent of l and r; balanced tree subclasses override it to restore
+     * balance in time proportional to the difference of the subtrees' heights.
+     */
+    protected Position<Entry<K, V>> joinSubtrees(Position<Entry<K, V>> l, Position<Entry<K, V>> x,
+                                                 Position<Entry<K, V>> r) {
+        tree.link(x, l, r);
+        return x;
+    }
+
+    /**
+     * Rebalances the tree after a bulk operation has installed p as its root.
+     * This version does nothing, but it can be overridden by subclasses.
+     */
+    protected void rebalanceRoot(Position<Entry<K, V>> p) {
+    }
+
+    /** Makes the detached subtree at p the entire tree. */
+    private void adopt(Position<Entry<K, V>> p) {
+        tree.setRoot(p);
+        rebalanceRoot(p);
+        modCount++;
+    }
+
+    /**
+     * Splits the detached subtree at t around key, returning the roots of the
+     * subtrees of lesser and greater keys, and between them the detached
+     * position having the key itself (or null if none).
+     */
+    @SuppressWarnings({"unchecked"})
+    private Position<Entry<K, V>>[] splitTree(Position<Entry<K, V>> t, K key) {
+        ArrayList<Position<Entry<K, V>>> path = new ArrayList<>();
+        Position<Entry<K, V>> p = t;
+        int comp = 0;
+        while (isInternal(p) && (comp = compare(key, p.getElement())) != 0) {
+            path.add(p);
+            p = (comp < 0 ? left(p) : right(p));
+        }
+        Position<Entry<K, V>> lower, found, upper;
+        if (isInternal(p)) {                   // found the key
+            lower = left(p);
+            found = p;
+            upper = right(p);
+        } else {
+            lower = p;
+            found = null;
+            upper = tree.newLeaf();
+        }
+        for (int j = path.size() - 1; j >= 0; j--) {   // reassemble the two sides, from the bottom up
+            Position<Entry<K, V>> q = path.get(j);
+            if (compare(key, q.getElement()) < 0)
+                upper = joinSubtrees(upper, q, right(q));  // q and its right subtree exceed key
+            else
+                lower = joinSubtrees(left(q), q, lower);   // q and its left subtree precede key
+        }
+        return (Position<Entry<K, V>>[]) new Position[]{lower, found, upper};
+    }
+
+    /**
+     * Merges the detached subtrees at a and b, reusing the positions of a as
+     * pivots, and returns the root of the result. For equal keys, the entry of
+     * a is kept if aWins, or else that of b.
+     */
+    private Position<Entry<K, V>> unionTrees(Position<Entry<K, V>> a, Position<Entry<K, V>> b, boolean aWins) {
+        if (isExternal(b)) return a;
+        if (isExternal(a)) return b;
+        Position<Entry<K, V>> l = left(a), r = right(a);
+        Position<Entry<K, V>>[] parts = splitTree(b, a.getElement().getKey());
+        if (parts[1] != null && !aWins)
+            set(a, parts[1].getElement());
+        Position<Entry<K, V>> lower = unionTrees(l, parts[0], aWins);
+        Position<Entry<K, V>> upper = unionTrees(r, parts[2], aWins);
+        return joinSubtrees(lower, a, upper);
+    }
+
+    /** Returns the root of a balanced subtree of new positions for buffer[lo..hi-1]. */
+    private Position<Entry<K, V>> build(ArrayList<Entry<K, V>> buffer, int lo, int hi) {
+        if (lo == hi) return tree.newLeaf();
+        int mid = (lo + hi) >>> 1;
+        Position<Entry<K, V>> l = build(buffer, lo, mid);
+        Position<Entry<K, V>> r = build(buffer, mid + 1, hi);
+        Entry<K, V> e = buffer.get(mid);
+        return joinSubtrees(l, tree.newNode(new MapEntry<>(e.getKey(), e.getValue())), r);
+    }
+
+    /** Verifies that other is a distinct map of the same kind as this one. */
+    private void checkCompatible(TreeMap<K, V> other) throws IllegalArgumentException {
+        if (other == this || other.getClass() != getClass())
+            throw new IllegalArgumentException("Map must be a different map of the same kind");
+        if (other.tree.getAugmentation() != tree.getAugmentation())
+            other.tree.setAugmentation(tree.getAugmentation());   // its aggregates must match ours
+    }
+
+    /**
+     * Replaces the contents of the map with the given entries, whose keys must
+     * be in strictly increasing order, in O(n) time. The tree is built perfectly
+     * balanced, bottom up, and balanced tree subclasses record their balance
+     * information (such as heights or colors) as it is built.
+     *
+     * @throws IllegalArgumentException if the keys are not strictly increasing
+     */
+    public void buildFromSorted(Iterable<Entry<K, V>> entries) throws IllegalArgumentException {
+        ArrayList<Entry<K, V>> buffer = new ArrayList<>();
+        for (Entry<K, V> e : entries) {
+            checkKey(e.getKey());                 // may throw IllegalArgumentException
+            if (!buffer.isEmpty() && compare(buffer.get(buffer.size() - 1), e) >= 0)
+                throw new IllegalArgumentException("Keys are not in increasing order");
+            buffer.add(e);
+        }
+        adopt(build(buffer, 0, buffer.size()));
+    }
+
+    /**
+     * Removes every entry with key greater than or equal to the given key, and
+     * returns them as a new map of the same kind, in O(log n) time for a
+     * balanced tree.
+     *
+     * @throws IllegalArgumentException if the key is not compatible with the map
+     */
+    public TreeMap<K, V> split(K key) throws IllegalArgumentException {
+        checkKey(key);                          // may throw IllegalArgumentException
+        TreeMap<K, V> upper = createMap();
+        upper.tree.shareAugmentation(tree);     // our aggregates move with the positions
+        Position<Entry<K, V>>[] parts = splitTree(root(), key);
+        Position<Entry<K, V>> high = parts[2];
+        if (parts[1] != null)                   // the entry with the key itself belongs above
+            high = joinSubtrees(tree.newLeaf(), parts[1], high);
+        adopt(parts[0]);
+        upper.adopt(high);
+        return upper;
+    }
+
+    /**
+     * Moves every entry of other, a map of the same kind whose keys all exceed
+     * those of this map, into this map, leaving other empty. This takes time
+     * O(log n) for a balanced tree.
+     *
+     * @throws IllegalArgumentException if other is not a map of the same kind, or has an
+     *                                  entry whose key is not greater than every key of this map
+     */
+    public void join(TreeMap<K, V> other) throws IllegalArgumentException {
+        checkCompatible(other);
+        if (other.isEmpty()) return;
+        if (!isEmpty() && compare(lastEntry(), other.firstEntry()) >= 0)
+            throw new IllegalArgumentException("Keys of the other map must exceed those of this map");
+        Position<Entry<K, V>> mine = root();
+        Position<Entry<K, V>>[] parts = splitTree(other.root(), other.firstEntry().getKey());
+        adopt(joinSubtrees(mine, parts[1], parts[2]));   // the least entry of other is the pivot
+        other.adopt(other.tree.newLeaf());
+    }
+
+    /**
+     * Moves every entry of other, a map of the same kind, into this map, leaving
+     * other empty; where both maps have a key, the value from other is kept. The
+     * positions of the smaller map (of size m) serve as pivots for splitting the
+     * larger (of size n), so this takes O(m log(n/m + 1)) time for balanced trees,
+     * rather than O(m log n) for a put of each entry.
+     *
+     * @throws IllegalArgumentException if other is not a map of the same kind
+     */
+    public void union(TreeMap<K, V> other) throws IllegalArgumentException {
+        checkCompatible(other);
+        if (other.isEmpty()) return;
+        Position<Entry<K, V>> mine = root(), theirs = other.root();
+        if (other.size() <= size())
+            adopt(unionTrees(theirs, mine, true));
+        else
+            adopt(unionTrees(mine, theirs, false));
+        other.adopt(other.tree.newLeaf());
     }
 
     // Stubs for balanced search tree operations (subclasses can override)
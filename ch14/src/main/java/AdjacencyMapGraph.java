@@ -187,10 +187,14 @@ public class AdjacencyMapGraph<V, E> implements Graph<V, E> {
      */
     public void removeVertex(Vertex<V> v) throws IllegalArgumentException {
         InnerVertex<V> vert = validate(v);
-        // remove all incident edges from the graph
+        // remove all incident edges from the graph (copied first, as removal modifies the maps)
+        java.util.ArrayList<Edge<E>> incident = new java.util.ArrayList<>();
         for (Edge<E> e : vert.getOutgoing().values())
-            removeEdge(e);
-        for (Edge<E> e : vert.getIncoming().values())
+            incident.add(e);
+        if (vert.getIncoming() != vert.getOutgoing())   // the maps are aliased if undirected
+            for (Edge<E> e : vert.getIncoming().values())
+                incident.add(e);
+        for (Edge<E> e : incident)
             removeEdge(e);
         // remove this vertex from the list of vertices
         vertices.remove(vert.getPosition());